@@ -2,7 +2,9 @@ package br.com.fiap.calmarket;
 
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.scheduling.annotation.EnableAsync;
 
+@EnableAsync(proxyTargetClass = true)
 @SpringBootApplication
 public class CalmarketApplication {
 
@@ -0,0 +1,63 @@
+package br.com.fiap.calmarket.config;
+
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.annotation.EnableCaching;
+import org.springframework.cache.caffeine.CaffeineCache;
+import org.springframework.cache.support.SimpleCacheManager;
+import org.springframework.cache.transaction.TransactionAwareCacheDecorator;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.Ordered;
+
+import java.util.List;
+import java.util.concurrent.Callable;
+
+// O cache fica por fora do bulkhead e das métricas do DAO (BulkheadDao.ORDEM): acerto de cache não toca o banco
+@Configuration
+@EnableCaching(order = CacheConfig.ORDEM)
+public class CacheConfig {
+
+    public static final int ORDEM = Ordered.LOWEST_PRECEDENCE - 20;
+
+    public static final String PRODUTOS = "produtos";
+    public static final String PRODUTOS_LISTA = "produtosLista";
+    public static final String USUARIOS = "usuarios";
+    public static final String FRAGMENTOS = "fragmentos";
+
+    @Bean
+    public CacheManager cacheManager(@Value("${calmarket.cache.produtos}") String specProdutos,
+                                     @Value("${calmarket.cache.produtos-lista}") String specListas,
+                                     @Value("${calmarket.cache.usuarios}") String specUsuarios,
+                                     @Value("${calmarket.cache.fragmentos}") String specFragmentos) {
+        SimpleCacheManager manager = new SimpleCacheManager();
+        manager.setCaches(List.of(
+                criar(PRODUTOS, specProdutos),
+                criar(PRODUTOS_LISTA, specListas),
+                criar(USUARIOS, specUsuarios),
+                criar(FRAGMENTOS, specFragmentos)
+        ));
+        return manager;
+    }
+
+    // Invalidações feitas dentro de uma transação só são aplicadas após o commit
+    private TransactionAwareCacheDecorator criar(String nome, String spec) {
+        return new CacheCompartilhado(new CaffeineCache(nome, Caffeine.from(spec).recordStats().build()));
+    }
+
+    // Valores carregados pelo cache (get com valueLoader, usado pelos @Cacheable(sync = true) e pelos fragmentos)
+    // são lidos como RoteamentoDataSource.paraCache: logo depois de um commit, vêm do primário e não de uma réplica
+    private static class CacheCompartilhado extends TransactionAwareCacheDecorator {
+
+        CacheCompartilhado(Cache alvo) {
+            super(alvo);
+        }
+
+        @Override
+        public <T> T get(Object key, Callable<T> valueLoader) {
+            return super.get(key, () -> RoteamentoDataSource.paraCache(valueLoader));
+        }
+    }
+}
@@ -0,0 +1,43 @@
+package br.com.fiap.calmarket.config;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.hateoas.mediatype.hal.HalMediaTypeConfiguration;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.http.converter.cbor.MappingJackson2CborHttpMessageConverter;
+import org.springframework.http.converter.smile.MappingJackson2SmileHttpMessageConverter;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+import java.util.List;
+
+// Representações binárias da API, negociadas pelo Accept ao lado do JSON:
+// application/cbor e application/x-jackson-smile.
+// Usam cópias do ObjectMapper do JSON com o módulo HAL, então _links e _embedded têm a mesma estrutura.
+@Configuration
+public class ConversoresConfig implements WebMvcConfigurer {
+
+    private final ObjectMapper objectMapper;
+    private final HalMediaTypeConfiguration hal;
+
+    public ConversoresConfig(ObjectMapper objectMapper, HalMediaTypeConfiguration hal) {
+        this.objectMapper = objectMapper;
+        this.hal = hal;
+    }
+
+    // O Spring MVC já registra CBOR e Smile quando as bibliotecas estão no classpath, mas sem o módulo HAL.
+    // Os conversores são trocados na mesma posição, depois do JSON, que continua sendo a resposta para */*
+    @Override
+    public void extendMessageConverters(List<HttpMessageConverter<?>> converters) {
+        HttpMessageConverter<?> cbor = new MappingJackson2CborHttpMessageConverter(hal.configureObjectMapper(objectMapper.copyWith(new CBORFactory())));
+        HttpMessageConverter<?> smile = new MappingJackson2SmileHttpMessageConverter(hal.configureObjectMapper(objectMapper.copyWith(new SmileFactory())));
+        converters.replaceAll(conversor -> {
+            if (conversor instanceof MappingJackson2CborHttpMessageConverter)
+                return cbor;
+            if (conversor instanceof MappingJackson2SmileHttpMessageConverter)
+                return smile;
+            return conversor;
+        });
+    }
+}
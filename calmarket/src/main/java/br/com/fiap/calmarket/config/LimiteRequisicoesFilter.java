@@ -0,0 +1,148 @@
+package br.com.fiap.calmarket.config;
+
+import br.com.fiap.calmarket.model.Role;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.security.SecurityProperties;
+import org.springframework.core.annotation.Order;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+// Limite de requisições por usuário em /produtos/** (calmarket.limite.*): um token bucket por usuário,
+// com rajada e reposição definidas pelo papel (ADMIN ou CLIENTE). Acima do limite responde 429 com Retry-After.
+// Roda logo depois do Spring Security, quando o usuário (sessão ou token) já está no SecurityContext.
+@Component
+@Order(SecurityProperties.DEFAULT_FILTER_ORDER + 1)
+@ConditionalOnProperty(name = "calmarket.limite.habilitado", havingValue = "true")
+public class LimiteRequisicoesFilter extends OncePerRequestFilter {
+
+    private static final String PREFIXO_PAPEL = "ROLE_";
+
+    private final Map<Role, Limite> limites = new EnumMap<>(Role.class);
+    private final Map<Role, Counter> recusadas = new EnumMap<>(Role.class);
+    // Usuários inativos saem do mapa; quem volta começa com o balde cheio
+    private final Cache<String, Balde> baldes;
+
+    public LimiteRequisicoesFilter(@Value("${calmarket.limite.admin.rajada}") int rajadaAdmin,
+                                   @Value("${calmarket.limite.admin.por-segundo}") double taxaAdmin,
+                                   @Value("${calmarket.limite.cliente.rajada}") int rajadaCliente,
+                                   @Value("${calmarket.limite.cliente.por-segundo}") double taxaCliente,
+                                   @Value("${calmarket.limite.inatividade}") Duration inatividade,
+                                   MeterRegistry registry) {
+        limites.put(Role.ADMIN, Limite.de(rajadaAdmin, taxaAdmin));
+        limites.put(Role.CLIENTE, Limite.de(rajadaCliente, taxaCliente));
+        for (Role papel : Role.values())
+            recusadas.put(papel, Counter.builder("calmarket.limite.recusadas")
+                    .description("Requisições recusadas pelo limite por usuário")
+                    .tag("papel", papel.name())
+                    .register(registry));
+        this.baldes = Caffeine.newBuilder().expireAfterAccess(inatividade).build();
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return !request.getRequestURI().startsWith(request.getContextPath() + "/produtos");
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        Authentication autenticacao = SecurityContextHolder.getContext().getAuthentication();
+        Role papel = papel(autenticacao);
+        if (papel == null) { // sem usuário autenticado o Spring Security já respondeu 401/302
+            chain.doFilter(request, response);
+            return;
+        }
+
+        Limite limite = limites.get(papel);
+        Balde balde = baldes.get(papel + ":" + autenticacao.getName(), chave -> new Balde());
+        long esperaNanos = balde.consumir(limite);
+        if (esperaNanos > 0) {
+            recusadas.get(papel).increment();
+            response.setHeader(HttpHeaders.RETRY_AFTER, retryAfter(esperaNanos));
+            response.sendError(HttpStatus.TOO_MANY_REQUESTS.value(), "LIMITE DE REQUISIÇÕES EXCEDIDO");
+            return;
+        }
+        chain.doFilter(request, response);
+    }
+
+    // Segundos inteiros arredondados para cima: quem espera o Retry-After já encontra o próximo token
+    static String retryAfter(long esperaNanos) {
+        return String.valueOf(Math.max(1, TimeUnit.NANOSECONDS.toSeconds(esperaNanos + 999_999_999)));
+    }
+
+    // ADMIN prevalece se o usuário tiver os dois papéis
+    private static Role papel(Authentication autenticacao) {
+        if (autenticacao == null || !autenticacao.isAuthenticated())
+            return null;
+        Role papel = null;
+        for (GrantedAuthority authority : autenticacao.getAuthorities()) {
+            String nome = authority.getAuthority();
+            if (nome.equals(PREFIXO_PAPEL + Role.ADMIN.name()))
+                return Role.ADMIN;
+            if (nome.equals(PREFIXO_PAPEL + Role.CLIENTE.name()))
+                papel = Role.CLIENTE;
+        }
+        return papel;
+    }
+
+    // Intervalo entre tokens e tolerância da rajada, em nanossegundos
+    record Limite(long intervalo, long tolerancia) {
+        static Limite de(int rajada, double porSegundo) {
+            long intervalo = (long) (TimeUnit.SECONDS.toNanos(1) / porSegundo);
+            return new Limite(intervalo, intervalo * rajada);
+        }
+    }
+
+    // Token bucket na forma GCRA: o estado é só o instante teórico em que o balde volta a ficar cheio,
+    // atualizado por compareAndSet, sem lock nem sincronização entre requisições do mesmo usuário
+    static class Balde {
+        private final LongSupplier relogio;
+        private final AtomicLong cheioEm;
+
+        Balde() {
+            this(System::nanoTime);
+        }
+
+        // Os testes passam um relógio próprio para controlar a reposição
+        Balde(LongSupplier relogio) {
+            this.relogio = relogio;
+            this.cheioEm = new AtomicLong(relogio.getAsLong());
+        }
+
+        // 0 se a requisição pode seguir; senão, quanto falta para o próximo token
+        long consumir(Limite limite) {
+            while (true) {
+                long agora = relogio.getAsLong();
+                long atual = cheioEm.get();
+                long novo = Math.max(atual, agora) + limite.intervalo();
+                long excesso = novo - agora - limite.tolerancia();
+                if (excesso > 0)
+                    return excesso;
+                if (cheioEm.compareAndSet(atual, novo))
+                    return 0;
+            }
+        }
+    }
+}
@@ -0,0 +1,145 @@
+package br.com.fiap.calmarket.config;
+
+import br.com.fiap.calmarket.dao.ProdutoDaoImpl;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.flyway.FlywayMigrationStrategy;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.*;
+
+// Migrações do Flyway (db/migration), ativas no perfil prod.
+// Com o build AOT o bean do Flyway é fixado no build, então desligar a migração só é possível em tempo de execução:
+// calmarket.flyway.migrar=false (usado no treino do CDS, que sobe o contexto sem banco; também pula o prepararSequencias).
+@Configuration
+public class MigracoesConfig {
+
+    private static final Logger log = LoggerFactory.getLogger(MigracoesConfig.class);
+
+    private static final String HISTORICO = "flyway_schema_history";
+
+    // Schema da V1: o que um banco criado pelo ddl-auto=update precisa ter para entrar como baseline nessa versão
+    private static final Map<String, Set<String>> COLUNAS_V1 = Map.of(
+            "cm_sq_produto", Set.of("next_val"),
+            "cm_tb_produto", Set.of("id", "preco", "atualizado_em", "versao", "nome", "tamanho", "tipo", "setor"),
+            "tds_users_mercado", Set.of("id", "email", "nome", "senha", "role"));
+    // A V3 remove os três primeiros pelo nome
+    private static final Set<String> INDICES_V1 = Set.of("idx_produto_setor_preco", "idx_produto_setor_tipo_tamanho",
+            "idx_produto_tipo_tamanho", "idx_produto_nome_id", "idx_produto_preco_id");
+    // Criados a partir da V2: se já existirem, a V2 falharia ao criá-los de novo
+    private static final Set<String> TABELAS_POSTERIORES = Set.of("cm_tb_seq_alteracao", "cm_tb_produto_removido");
+
+    @Bean
+    public FlywayMigrationStrategy estrategiaMigracao(@Value("${calmarket.flyway.migrar}") boolean migrar) {
+        return flyway -> {
+            if (!migrar) {
+                log.info("Migrações do Flyway ignoradas (calmarket.flyway.migrar=false)");
+                return;
+            }
+            List<String> divergencias = divergenciasDoBaseline(flyway.getConfiguration().getDataSource());
+            if (!divergencias.isEmpty())
+                throw new IllegalStateException("O banco não tem histórico do Flyway e não está no schema da V1, "
+                        + "então não pode entrar como baseline (spring.flyway.baseline-version=1): "
+                        + String.join("; ", divergencias)
+                        + ". Ajuste o banco para o V1__schema_inicial.sql antes de subir em prod.");
+            flyway.migrate();
+        };
+    }
+
+    // Linha do contador de alterações e início da CM_SQ_PRODUTO: precisam estar prontos antes da primeira escrita.
+    // Roda depois de criados todos os singletons (Flyway e ddl-auto já aplicados) e antes do servidor web começar a
+    // aceitar requisições, que só sobe no start dos SmartLifecycle. Sem migração (treino do CDS) não há banco
+    @Bean
+    public SmartInitializingSingleton prepararSequencias(@Value("${calmarket.flyway.migrar}") boolean migrar,
+                                                         ProdutoDaoImpl produtoDao) {
+        return () -> {
+            if (!migrar)
+                return;
+            produtoDao.criarSequenciaAlteracao();
+            produtoDao.ajustarSequencia();
+        };
+    }
+
+    // Um banco sem histórico e com tabelas entra como baseline da V1 sem executar a V1 (baseline-on-migrate).
+    // Só é seguro se o schema for exatamente o da V1; banco vazio ou já migrado não precisa de verificação
+    static List<String> divergenciasDoBaseline(DataSource dataSource) {
+        try (Connection conexao = dataSource.getConnection()) {
+            DatabaseMetaData metadados = conexao.getMetaData();
+            String catalogo = conexao.getCatalog();
+            String schema = conexao.getSchema();
+
+            Map<String, String> tabelas = new HashMap<>();
+            try (ResultSet rs = metadados.getTables(catalogo, schema, "%", new String[]{"TABLE"})) {
+                while (rs.next())
+                    tabelas.put(rs.getString("TABLE_NAME").toLowerCase(Locale.ROOT), rs.getString("TABLE_NAME"));
+            }
+            if (tabelas.isEmpty() || tabelas.containsKey(HISTORICO))
+                return List.of();
+
+            List<String> divergencias = new ArrayList<>();
+            COLUNAS_V1.forEach((tabela, colunas) -> {
+                if (!tabelas.containsKey(tabela)) {
+                    divergencias.add("falta a tabela " + tabela);
+                    return;
+                }
+                Set<String> faltando = new TreeSet<>(colunas);
+                faltando.removeAll(colunas(metadados, catalogo, schema, tabelas.get(tabela)));
+                if (!faltando.isEmpty())
+                    divergencias.add("faltam em " + tabela + " as colunas " + faltando);
+            });
+
+            if (tabelas.containsKey("cm_tb_produto")) {
+                String produto = tabelas.get("cm_tb_produto");
+                Set<String> faltando = new TreeSet<>(INDICES_V1);
+                faltando.removeAll(indices(metadados, catalogo, schema, produto, false).keySet());
+                if (!faltando.isEmpty())
+                    divergencias.add("faltam em cm_tb_produto os índices " + faltando);
+                if (colunas(metadados, catalogo, schema, produto).contains("seq_alteracao"))
+                    divergencias.add("cm_tb_produto já tem a coluna seq_alteracao, criada pela V2");
+            }
+            if (tabelas.containsKey("tds_users_mercado")
+                    && !indices(metadados, catalogo, schema, tabelas.get("tds_users_mercado"), true).containsValue("email"))
+                divergencias.add("falta o índice único de email em tds_users_mercado");
+
+            for (String tabela : TABELAS_POSTERIORES)
+                if (tabelas.containsKey(tabela))
+                    divergencias.add("a tabela " + tabela + " já existe, mas é criada pela V2");
+            return divergencias;
+        } catch (SQLException e) {
+            throw new IllegalStateException("Não foi possível ler o schema antes das migrações", e);
+        }
+    }
+
+    private static Set<String> colunas(DatabaseMetaData metadados, String catalogo, String schema, String tabela) {
+        Set<String> colunas = new HashSet<>();
+        try (ResultSet rs = metadados.getColumns(catalogo, schema, tabela, "%")) {
+            while (rs.next())
+                colunas.add(rs.getString("COLUMN_NAME").toLowerCase(Locale.ROOT));
+        } catch (SQLException e) {
+            throw new IllegalStateException("Não foi possível ler as colunas de " + tabela, e);
+        }
+        return colunas;
+    }
+
+    // Nome do índice -> primeira coluna
+    private static Map<String, String> indices(DatabaseMetaData metadados, String catalogo, String schema, String tabela,
+                                               boolean unicos) {
+        Map<String, String> indices = new HashMap<>();
+        try (ResultSet rs = metadados.getIndexInfo(catalogo, schema, tabela, unicos, false)) {
+            while (rs.next())
+                if (rs.getString("INDEX_NAME") != null && rs.getShort("ORDINAL_POSITION") == 1)
+                    indices.put(rs.getString("INDEX_NAME").toLowerCase(Locale.ROOT), rs.getString("COLUMN_NAME").toLowerCase(Locale.ROOT));
+        } catch (SQLException e) {
+            throw new IllegalStateException("Não foi possível ler os índices de " + tabela, e);
+        }
+        return indices;
+    }
+}
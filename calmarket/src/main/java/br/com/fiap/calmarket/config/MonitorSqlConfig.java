@@ -0,0 +1,23 @@
+package br.com.fiap.calmarket.config;
+
+import br.com.fiap.calmarket.dao.MonitorSql;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import static org.hibernate.cfg.AvailableSettings.AUTO_SESSION_EVENTS_LISTENER;
+import static org.hibernate.cfg.AvailableSettings.STATEMENT_INSPECTOR;
+
+// Liga o MonitorSql ao Hibernate: conta cada statement (StatementInspector) e o tempo de JDBC (SessionEventListener)
+// da requisição aberta pelo OrcamentoSqlFilter
+@Configuration
+public class MonitorSqlConfig {
+
+    @Bean
+    public HibernatePropertiesCustomizer monitorSql() {
+        return propriedades -> {
+            propriedades.put(STATEMENT_INSPECTOR, new MonitorSql());
+            propriedades.put(AUTO_SESSION_EVENTS_LISTENER, MonitorSql.class.getName());
+        };
+    }
+}
@@ -0,0 +1,131 @@
+package br.com.fiap.calmarket.config;
+
+import br.com.fiap.calmarket.dao.MonitorSql;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.ServletOutputStream;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import jakarta.servlet.http.HttpServletResponseWrapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+
+// Mede statements e tempo de banco por requisição HTTP.
+// Loga quem passa do orçamento (calmarket.sql.orcamento) e SELECTs repetidos (possível N+1);
+// com calmarket.sql.cabecalhos=true devolve X-SQL-Count e X-SQL-Time-Ms na resposta.
+// O MonitorSql é registrado no Hibernate pelo MonitorSqlConfig.
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE + 10)
+public class OrcamentoSqlFilter extends OncePerRequestFilter {
+
+    public static final String CABECALHO_QUANTIDADE = "X-SQL-Count";
+    public static final String CABECALHO_TEMPO = "X-SQL-Time-Ms";
+
+    private static final Logger log = LoggerFactory.getLogger(OrcamentoSqlFilter.class);
+
+    private final int orcamento;
+    private final int repeticoes;
+    private final boolean cabecalhos;
+
+    public OrcamentoSqlFilter(@Value("${calmarket.sql.orcamento}") int orcamento,
+                              @Value("${calmarket.sql.repeticoes}") int repeticoes,
+                              @Value("${calmarket.sql.cabecalhos}") boolean cabecalhos) {
+        this.orcamento = orcamento;
+        this.repeticoes = repeticoes;
+        this.cabecalhos = cabecalhos;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        MonitorSql.iniciar();
+        HttpServletResponse resposta = cabecalhos ? new RespostaComCabecalhos(response) : response;
+        try {
+            chain.doFilter(request, resposta);
+            if (cabecalhos && !response.isCommitted())
+                adicionarCabecalhos(response);
+        } finally {
+            verificar(request, MonitorSql.encerrar());
+        }
+    }
+
+    private void verificar(HttpServletRequest request, MonitorSql.Medicao medicao) {
+        if (medicao.getStatements() > orcamento)
+            log.warn("{} {} executou {} statements em {} ms (orçamento: {})", request.getMethod(),
+                    request.getRequestURI(), medicao.getStatements(), medicao.getMillis(), orcamento);
+
+        medicao.getSelects().forEach((sql, vezes) -> {
+            if (vezes >= repeticoes)
+                log.warn("Possível N+1 em {} {}: {}x {}", request.getMethod(), request.getRequestURI(), vezes, sql);
+        });
+    }
+
+    private static void adicionarCabecalhos(HttpServletResponse response) {
+        MonitorSql.Medicao medicao = MonitorSql.atual();
+        if (medicao == null) // corpo escrito fora da thread da requisição (ex.: exportação em streaming)
+            return;
+        response.setHeader(CABECALHO_QUANTIDADE, String.valueOf(medicao.getStatements()));
+        response.setHeader(CABECALHO_TEMPO, String.valueOf(medicao.getMillis()));
+    }
+
+    // Os cabeçalhos precisam sair antes do corpo: são gravados quando a resposta começa a ser escrita
+    private static class RespostaComCabecalhos extends HttpServletResponseWrapper {
+
+        private boolean gravados;
+
+        RespostaComCabecalhos(HttpServletResponse response) {
+            super(response);
+        }
+
+        private void gravar() {
+            if (!gravados && !isCommitted()) {
+                adicionarCabecalhos((HttpServletResponse) getResponse());
+                gravados = true;
+            }
+        }
+
+        @Override
+        public ServletOutputStream getOutputStream() throws IOException {
+            gravar();
+            return super.getOutputStream();
+        }
+
+        @Override
+        public PrintWriter getWriter() throws IOException {
+            gravar();
+            return super.getWriter();
+        }
+
+        @Override
+        public void flushBuffer() throws IOException {
+            gravar();
+            super.flushBuffer();
+        }
+
+        @Override
+        public void sendError(int sc, String msg) throws IOException {
+            gravar();
+            super.sendError(sc, msg);
+        }
+
+        @Override
+        public void sendError(int sc) throws IOException {
+            gravar();
+            super.sendError(sc);
+        }
+
+        @Override
+        public void sendRedirect(String location) throws IOException {
+            gravar();
+            super.sendRedirect(location);
+        }
+    }
+}
@@ -0,0 +1,73 @@
+package br.com.fiap.calmarket.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.metrics.micrometer.MicrometerMetricsTrackerFactory;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.actuate.health.Health;
+import org.springframework.boot.actuate.health.HealthIndicator;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+import javax.sql.DataSource;
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+// Réplicas de leitura (calmarket.replicas.*): o DataSource usado pelo JPA passa a ser
+// LazyConnectionDataSourceProxy -> RoteamentoDataSource -> primário ou réplica.
+@Configuration
+@ConditionalOnProperty(name = "calmarket.replicas.habilitado", havingValue = "true")
+public class ReplicasConfig {
+
+    // Mesmo pool que o Spring Boot criaria, com as propriedades spring.datasource.hikari.*
+    @Bean
+    @ConfigurationProperties("spring.datasource.hikari")
+    public HikariDataSource dataSourcePrimario(DataSourceProperties properties) {
+        HikariDataSource dataSource = properties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+        dataSource.setPoolName("primario");
+        return dataSource;
+    }
+
+    @Bean(destroyMethod = "close")
+    public RoteamentoDataSource roteamentoDataSource(HikariDataSource dataSourcePrimario,
+                                                     DataSourceProperties properties,
+                                                     ObjectProvider<MeterRegistry> meterRegistry,
+                                                     @Value("${calmarket.replicas.urls}") String[] urls,
+                                                     @Value("${calmarket.replicas.janela-leitura-propria}") Duration janela,
+                                                     @Value("${calmarket.replicas.intervalo-verificacao}") Duration intervalo) {
+        Map<String, DataSource> replicas = new LinkedHashMap<>();
+        for (int i = 0; i < urls.length; i++) {
+            HikariDataSource replica = properties.initializeDataSourceBuilder().type(HikariDataSource.class)
+                    .url(urls[i].trim())
+                    .build();
+            replica.setPoolName("replica-" + (i + 1));
+            replica.setMaximumPoolSize(dataSourcePrimario.getMaximumPoolSize());
+            replica.setReadOnly(true);
+            // Réplica fora do ar não impede a subida nem segura a requisição por muito tempo
+            replica.setInitializationFailTimeout(-1);
+            replica.setConnectionTimeout(Duration.ofSeconds(2).toMillis());
+            meterRegistry.ifAvailable(registry -> replica.setMetricsTrackerFactory(new MicrometerMetricsTrackerFactory(registry)));
+            replicas.put(replica.getPoolName(), replica);
+        }
+        return new RoteamentoDataSource(dataSourcePrimario, replicas, janela, intervalo);
+    }
+
+    @Bean
+    @Primary
+    public DataSource dataSource(RoteamentoDataSource roteamentoDataSource) {
+        return new LazyConnectionDataSourceProxy(roteamentoDataSource);
+    }
+
+    // /actuator/health mostra quais réplicas estão no rodízio
+    @Bean
+    public HealthIndicator replicasHealthIndicator(RoteamentoDataSource roteamentoDataSource) {
+        return () -> Health.up().withDetails(roteamentoDataSource.situacao()).build();
+    }
+}
@@ -0,0 +1,196 @@
+package br.com.fiap.calmarket.config;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Transações readOnly vão para as réplicas (round-robin entre as saudáveis); todo o resto vai para o primário.
+// Quem escreveu há menos de "janela" continua lendo do primário (leitura da própria escrita). Leituras que vão
+// para um cache compartilhado (paraCache) também vão ao primário até "janela" depois do último commit de qualquer
+// usuário: lidas de uma réplica atrasada, guardariam o valor antigo para todos os usuários.
+// Precisa ficar atrás de um LazyConnectionDataSourceProxy: a conexão só é escolhida no primeiro comando,
+// quando o flag readOnly da transação já está definido.
+public class RoteamentoDataSource extends AbstractRoutingDataSource implements AutoCloseable {
+
+    public static final String PRIMARIO = "primario";
+
+    private static final Logger log = LoggerFactory.getLogger(RoteamentoDataSource.class);
+    private static final String ANONIMO = "";
+    private static final ThreadLocal<Boolean> PARA_CACHE = ThreadLocal.withInitial(() -> Boolean.FALSE);
+
+    private final DataSource primario;
+    private final List<Replica> replicas = new ArrayList<>();
+    private final AtomicInteger proxima = new AtomicInteger();
+    private final Cache<String, Boolean> escritasRecentes;
+    private final long janela;
+    // System.nanoTime() do último commit de escrita nesta instância
+    private volatile long ultimoCommit;
+    private final ScheduledExecutorService verificador;
+
+    public RoteamentoDataSource(DataSource primario, Map<String, DataSource> replicas, Duration janela, Duration intervalo) {
+        this.primario = primario;
+        replicas.forEach((nome, dataSource) -> this.replicas.add(new Replica(nome, dataSource)));
+        this.escritasRecentes = Caffeine.newBuilder().expireAfterWrite(janela).build();
+        this.janela = janela.toNanos();
+        this.ultimoCommit = System.nanoTime() - this.janela;
+
+        Map<Object, Object> alvos = new HashMap<>(replicas);
+        alvos.put(PRIMARIO, primario);
+        setTargetDataSources(alvos);
+        setDefaultTargetDataSource(primario);
+        afterPropertiesSet();
+
+        this.verificador = Executors.newSingleThreadScheduledExecutor(Thread.ofPlatform().daemon().name("replicas-saude").factory());
+        verificador.scheduleWithFixedDelay(this::verificarReplicas, 0, intervalo.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        if (!TransactionSynchronizationManager.isCurrentTransactionReadOnly()) {
+            // Fora de transação (ex.: consultas do login) também vai ao primário, mas não conta como escrita
+            if (TransactionSynchronizationManager.isActualTransactionActive())
+                registrarEscrita();
+            return PRIMARIO;
+        }
+        if (escritasRecentes.getIfPresent(usuario()) != null)
+            return PRIMARIO;
+        if (PARA_CACHE.get() && System.nanoTime() - ultimoCommit < janela)
+            return PRIMARIO;
+        Replica replica = proximaSaudavel();
+        return replica != null ? replica.nome : PRIMARIO;
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        Object chave = determineCurrentLookupKey();
+        Replica replica = replica(chave);
+        if (replica == null)
+            return primario.getConnection();
+        try {
+            return replica.dataSource.getConnection();
+        } catch (SQLException e) {
+            // Réplica fora do ar: tira do rodízio até a próxima verificação e atende pelo primário
+            marcar(replica, false, e);
+            return primario.getConnection();
+        }
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        return getConnection();
+    }
+
+    private Replica proximaSaudavel() {
+        int tamanho = replicas.size();
+        for (int i = 0; i < tamanho; i++) {
+            Replica replica = replicas.get(Math.floorMod(proxima.getAndIncrement(), tamanho));
+            if (replica.saudavel)
+                return replica;
+        }
+        return null;
+    }
+
+    private Replica replica(Object chave) {
+        for (Replica replica : replicas)
+            if (replica.nome.equals(chave))
+                return replica;
+        return null;
+    }
+
+    // Marca o usuário ao abrir a escrita e de novo no commit, para a janela contar a partir do fim da transação
+    private void registrarEscrita() {
+        String usuario = usuario();
+        escritasRecentes.put(usuario, Boolean.TRUE);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    ultimoCommit = System.nanoTime();
+                    escritasRecentes.put(usuario, Boolean.TRUE);
+                }
+            });
+        }
+    }
+
+    // Executa a leitura de um valor que vai para um cache compartilhado entre usuários (ver CacheConfig)
+    public static <T> T paraCache(Callable<T> leitura) throws Exception {
+        Boolean anterior = PARA_CACHE.get();
+        PARA_CACHE.set(Boolean.TRUE);
+        try {
+            return leitura.call();
+        } finally {
+            PARA_CACHE.set(anterior);
+        }
+    }
+
+    private static String usuario() {
+        Authentication autenticacao = SecurityContextHolder.getContext().getAuthentication();
+        return autenticacao != null ? autenticacao.getName() : ANONIMO;
+    }
+
+    private void verificarReplicas() {
+        for (Replica replica : replicas) {
+            try (Connection conexao = replica.dataSource.getConnection()) {
+                marcar(replica, conexao.isValid(1), null);
+            } catch (SQLException | RuntimeException e) {
+                marcar(replica, false, e);
+            }
+        }
+    }
+
+    private static void marcar(Replica replica, boolean saudavel, Exception causa) {
+        if (replica.saudavel == saudavel)
+            return;
+        replica.saudavel = saudavel;
+        if (saudavel)
+            log.info("Réplica {} de volta ao rodízio de leitura", replica.nome);
+        else
+            log.warn("Réplica {} fora do rodízio de leitura: {}", replica.nome, causa != null ? causa.getMessage() : "conexão inválida");
+    }
+
+    public Map<String, Boolean> situacao() {
+        Map<String, Boolean> situacao = new HashMap<>();
+        replicas.forEach(replica -> situacao.put(replica.nome, replica.saudavel));
+        return situacao;
+    }
+
+    // As réplicas não são beans, então os pools delas são fechados aqui
+    @Override
+    public void close() throws Exception {
+        verificador.shutdownNow();
+        for (Replica replica : replicas)
+            if (replica.dataSource instanceof AutoCloseable pool)
+                pool.close();
+    }
+
+    private static class Replica {
+        private final String nome;
+        private final DataSource dataSource;
+        private volatile boolean saudavel = true;
+
+        Replica(String nome, DataSource dataSource) {
+            this.nome = nome;
+            this.dataSource = dataSource;
+        }
+    }
+}
@@ -1,18 +1,44 @@
 package br.com.fiap.calmarket.config;
 
+import br.com.fiap.calmarket.Exception.SobrecargaException;
+import br.com.fiap.calmarket.service.CodificadorSenha;
 import br.com.fiap.calmarket.service.UsuarioService;
+import jakarta.servlet.DispatcherType;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cache.CacheManager;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.http.HttpHeaders;
 import org.springframework.security.authentication.AuthenticationManager;
+import org.springframework.security.authentication.InternalAuthenticationServiceException;
+import org.springframework.security.authentication.dao.DaoAuthenticationProvider;
 import org.springframework.security.config.annotation.authentication.configuration.AuthenticationConfiguration;
+import org.springframework.security.config.Customizer;
 import org.springframework.security.config.annotation.web.builders.HttpSecurity;
-import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.AuthenticationException;
+import org.springframework.security.core.userdetails.UserCache;
+import org.springframework.security.core.userdetails.cache.SpringCacheBasedUserCache;
 import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.security.web.AuthenticationEntryPoint;
 import org.springframework.security.web.SecurityFilterChain;
+import org.springframework.security.web.authentication.AuthenticationFailureHandler;
+import org.springframework.security.web.authentication.DelegatingAuthenticationEntryPoint;
+import org.springframework.security.web.authentication.LoginUrlAuthenticationEntryPoint;
+import org.springframework.security.web.authentication.SimpleUrlAuthenticationFailureHandler;
+import org.springframework.security.web.authentication.www.BasicAuthenticationEntryPoint;
+import org.springframework.security.web.servlet.util.matcher.PathPatternRequestMatcher;
+import org.springframework.security.web.util.matcher.RequestMatcher;
+
+import java.util.LinkedHashMap;
 
 @Configuration
 public class SecurityConfig {
 
+    private static final Logger log = LoggerFactory.getLogger(SecurityConfig.class);
+
     @Bean
     public SecurityFilterChain securityFilterChain(HttpSecurity http) throws Exception {
         http
@@ -20,10 +46,20 @@ public class SecurityConfig {
                 .authorizeHttpRequests(auth -> auth
                         // URLs públicas
                         .requestMatchers("/login", "/signup", "/css/**", "/js/**").permitAll()
+                        // Health público só com o status; detalhes (management.endpoint.health.roles) e métricas exigem ADMIN
+                        .requestMatchers("/actuator/health").permitAll()
+                        // Página de erro de quem ainda não logou (ex.: 503 do cadastro ou do login com o pool de hash
+                        // cheio): sem isso o sendError vira redirecionamento para /login
+                        .dispatcherTypeMatchers(DispatcherType.ERROR).permitAll()
+
+                        // Demais endpoints do actuator, inclusive /actuator/prometheus
+                        .requestMatchers("/actuator/**").hasRole("ADMIN")
 
                         // URLs admin
                         .requestMatchers("/produtos/view/cadastrar", "/produtos/view/editar/**", "/produtos/view/excluir/**")
                         .hasRole("ADMIN")
+                        // Estatísticas dos caches (tamanhos e taxas de acerto): informação de operação, como o actuator
+                        .requestMatchers("/produtos/cache/**").hasRole("ADMIN")
 
                         // URLs autenticadas
                         .requestMatchers("/produtos/**").hasAnyRole("ADMIN", "CLIENTE")
@@ -34,8 +70,12 @@ public class SecurityConfig {
                 .formLogin(form -> form
                         .loginPage("/login")
                         .defaultSuccessUrl("/", true)
+                        .failureHandler(falhaLogin())
                         .permitAll()
                 )
+                // Basic para o coletor do Prometheus (basic_auth com um usuário ADMIN); o navegador continua no formulário
+                .httpBasic(Customizer.withDefaults())
+                .exceptionHandling(ex -> ex.authenticationEntryPoint(entradaSemLogin()))
                 .logout(logout -> logout.logoutSuccessUrl("/login?logout").permitAll());
 
         return http.build();
@@ -43,8 +83,72 @@ public class SecurityConfig {
 
 
     @Bean
-    public PasswordEncoder passwordEncoder() {
-        return new BCryptPasswordEncoder();
+    public PasswordEncoder passwordEncoder(@Value("${calmarket.senha.tempo-alvo-ms}") long tempoAlvoMs,
+                                           @Value("${calmarket.senha.threads}") int threads,
+                                           @Value("${calmarket.senha.fila}") int fila,
+                                           @Value("${calmarket.senha.espera-ms}") long esperaMs,
+                                           @Value("${calmarket.senha.cota-cpu}") double cotaCpu) {
+        int custo = CodificadorSenha.calibrar(tempoAlvoMs);
+        CodificadorSenha codificador = new CodificadorSenha(custo, threads, fila, esperaMs, cotaCpu);
+        log.info("Custo do BCrypt calibrado para {} (alvo de {} ms por hash), {} threads com {}% de CPU cada",
+                custo, tempoAlvoMs, threads, Math.round(codificador.cotaPorThread() * 100));
+        return codificador;
+    }
+
+    // Sem login: 401 com desafio Basic no actuator, redirecionamento para /login no resto (com o Basic ligado,
+    // o padrão do Spring passaria a responder 401 a quem não manda Accept: text/html)
+    private static AuthenticationEntryPoint entradaSemLogin() {
+        BasicAuthenticationEntryPoint basic = new BasicAuthenticationEntryPoint();
+        basic.setRealmName("calmarket");
+        LinkedHashMap<RequestMatcher, AuthenticationEntryPoint> entradas = new LinkedHashMap<>();
+        entradas.put(PathPatternRequestMatcher.withDefaults().matcher("/actuator/**"), basic);
+        DelegatingAuthenticationEntryPoint entrada = new DelegatingAuthenticationEntryPoint(entradas);
+        entrada.setDefaultEntryPoint(new LoginUrlAuthenticationEntryPoint("/login"));
+        return entrada;
+    }
+
+    // Login recusado por sobrecarga do pool de hash responde 503 em vez de "senha inválida"
+    private AuthenticationFailureHandler falhaLogin() {
+        SimpleUrlAuthenticationFailureHandler padrao = new SimpleUrlAuthenticationFailureHandler("/login?error");
+        return (request, response, exception) -> {
+            if (exception.getCause() instanceof SobrecargaException sobrecarga) {
+                response.setHeader(HttpHeaders.RETRY_AFTER, sobrecarga.getHeaders().getFirst(HttpHeaders.RETRY_AFTER));
+                response.sendError(sobrecarga.getStatusCode().value(), sobrecarga.getMessage());
+                return;
+            }
+            padrao.onAuthenticationFailure(request, response, exception);
+        };
+    }
+
+    // Cache de UserDetails para o login não consultar o banco a cada tentativa
+    @Bean
+    public UserCache userCache(CacheManager cacheManager) throws Exception {
+        return new SpringCacheBasedUserCache(cacheManager.getCache(CacheConfig.USUARIOS));
+    }
+
+    @Bean
+    public DaoAuthenticationProvider authenticationProvider(UsuarioService usuarioService, PasswordEncoder passwordEncoder,
+                                                            UserCache userCache) {
+        DaoAuthenticationProvider provider = new DaoAuthenticationProvider(usuarioService) {
+            // O DaoAuthenticationProvider deixa passar as exceções do PasswordEncoder (conferência da senha, hash
+            // contra medição de tempo, regravação do hash), que sairiam do filtro de login como 500. Sobrecarga do pool
+            // de hash vira falha interna com a SobrecargaException como causa, tratada pelo falhaLogin e pelo TokenController
+            @Override
+            public Authentication authenticate(Authentication authentication) throws AuthenticationException {
+                try {
+                    return super.authenticate(authentication);
+                } catch (SobrecargaException e) {
+                    throw new InternalAuthenticationServiceException(e.getMessage(), e);
+                }
+            }
+        };
+        provider.setPasswordEncoder(passwordEncoder);
+        provider.setUserCache(userCache);
+        // Regrava o hash quando o custo calibrado é maior que o do hash armazenado
+        provider.setUserDetailsPasswordService(usuarioService);
+        // O principal vira o e-mail (String), assim o apagamento de credenciais após o login não afeta o UserDetails em cache
+        provider.setForcePrincipalAsString(true);
+        return provider;
     }
 
     @Bean
@@ -0,0 +1,100 @@
+package br.com.fiap.calmarket.config;
+
+import com.nimbusds.jose.jwk.source.ImmutableSecret;
+import jakarta.servlet.http.HttpServletRequest;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.annotation.Order;
+import org.springframework.http.HttpHeaders;
+import org.springframework.security.config.annotation.web.builders.HttpSecurity;
+import org.springframework.security.config.http.SessionCreationPolicy;
+import org.springframework.security.oauth2.jose.jws.MacAlgorithm;
+import org.springframework.security.oauth2.jwt.JwtDecoder;
+import org.springframework.security.oauth2.jwt.JwtEncoder;
+import org.springframework.security.oauth2.jwt.NimbusJwtDecoder;
+import org.springframework.security.oauth2.jwt.NimbusJwtEncoder;
+import org.springframework.security.oauth2.server.resource.authentication.JwtAuthenticationConverter;
+import org.springframework.security.oauth2.server.resource.authentication.JwtGrantedAuthoritiesConverter;
+import org.springframework.security.web.SecurityFilterChain;
+
+import javax.crypto.SecretKey;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+
+// Autenticação sem sessão para a API REST (/produtos/**, exceto as telas em /produtos/view).
+// Requisições com "Authorization: Bearer" são validadas só pela assinatura do token e pelos papéis que ele carrega,
+// sem HttpSession nem consulta ao UsuarioDao; as demais continuam na cadeia com sessão do SecurityConfig.
+@Configuration
+@ConditionalOnProperty(name = "calmarket.token.habilitado", havingValue = "true")
+public class TokenSecurityConfig {
+
+    public static final String CLAIM_ROLES = "roles";
+
+    // Valor que vinha no application.properties até ser removido: quem copiou a configuração antiga não pode subir com ele
+    private static final String SEGREDO_EXEMPLO = "troque-este-segredo-por-um-valor-aleatorio-de-32-bytes-ou-mais";
+
+    @Bean
+    @Order(1)
+    public SecurityFilterChain tokenFilterChain(HttpSecurity http) throws Exception {
+        http
+                .securityMatcher(TokenSecurityConfig::requisicaoComToken)
+                .csrf(csrf -> csrf.disable())
+                .sessionManagement(session -> session.sessionCreationPolicy(SessionCreationPolicy.STATELESS))
+                .authorizeHttpRequests(auth -> auth
+                        .requestMatchers("/auth/token").permitAll()
+                        .requestMatchers("/produtos/cache/**").hasRole("ADMIN")
+                        .requestMatchers("/produtos/**").hasAnyRole("ADMIN", "CLIENTE")
+                        .anyRequest().authenticated()
+                )
+                .oauth2ResourceServer(oauth -> oauth
+                        .jwt(jwt -> jwt.jwtAuthenticationConverter(conversorPapeis()))
+                );
+
+        return http.build();
+    }
+
+    private static boolean requisicaoComToken(HttpServletRequest request) {
+        String caminho = request.getRequestURI().substring(request.getContextPath().length());
+        if (caminho.equals("/auth/token"))
+            return true;
+        String autorizacao = request.getHeader(HttpHeaders.AUTHORIZATION);
+        return caminho.startsWith("/produtos")
+                && !caminho.startsWith("/produtos/view")
+                && autorizacao != null
+                && autorizacao.regionMatches(true, 0, "Bearer ", 0, 7);
+    }
+
+    // Claim "roles": ["ADMIN"] vira a authority ROLE_ADMIN
+    private JwtAuthenticationConverter conversorPapeis() {
+        JwtGrantedAuthoritiesConverter papeis = new JwtGrantedAuthoritiesConverter();
+        papeis.setAuthoritiesClaimName(CLAIM_ROLES);
+        papeis.setAuthorityPrefix("ROLE_");
+        JwtAuthenticationConverter conversor = new JwtAuthenticationConverter();
+        conversor.setJwtGrantedAuthoritiesConverter(papeis);
+        return conversor;
+    }
+
+    @Bean
+    public JwtEncoder jwtEncoder(@Value("${calmarket.token.segredo:}") String segredo) {
+        return new NimbusJwtEncoder(new ImmutableSecret<>(chave(segredo)));
+    }
+
+    @Bean
+    public JwtDecoder jwtDecoder(@Value("${calmarket.token.segredo:}") String segredo) {
+        return NimbusJwtDecoder.withSecretKey(chave(segredo)).macAlgorithm(MacAlgorithm.HS256).build();
+    }
+
+    // Segredo obrigatório: sem padrão no application.properties, para nenhum ambiente assinar tokens com um valor conhecido
+    static SecretKey chave(String segredo) {
+        if (segredo == null || segredo.isBlank())
+            throw new IllegalStateException("calmarket.token.segredo não definido (use a variável de ambiente CALMARKET_TOKEN_SEGREDO)");
+        if (segredo.equals(SEGREDO_EXEMPLO))
+            throw new IllegalStateException("calmarket.token.segredo ainda é o valor de exemplo; gere um segredo aleatório");
+        byte[] bytes = segredo.getBytes(StandardCharsets.UTF_8);
+        if (bytes.length < 32)
+            throw new IllegalStateException("calmarket.token.segredo precisa ter pelo menos 32 bytes");
+        return new SecretKeySpec(bytes, "HmacSHA256");
+    }
+}
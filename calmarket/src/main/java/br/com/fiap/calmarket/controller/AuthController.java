@@ -3,8 +3,11 @@ package br.com.fiap.calmarket.controller;
 import br.com.fiap.calmarket.dao.UsuarioDao;
 import br.com.fiap.calmarket.model.Role;
 import br.com.fiap.calmarket.model.Usuario;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.security.core.userdetails.UserCache;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Controller;
+import org.springframework.ui.Model;
 import org.springframework.web.bind.annotation.*;
 
 @Controller
@@ -12,10 +15,12 @@ public class AuthController {
 
     private final UsuarioDao usuarioDao;
     private final PasswordEncoder passwordEncoder;
+    private final UserCache userCache;
 
-    public AuthController(UsuarioDao usuarioDao, PasswordEncoder passwordEncoder) {
+    public AuthController(UsuarioDao usuarioDao, PasswordEncoder passwordEncoder, UserCache userCache) {
         this.usuarioDao = usuarioDao;
         this.passwordEncoder = passwordEncoder;
+        this.userCache = userCache;
     }
 
     @GetMapping("/login")
@@ -29,12 +34,23 @@ public class AuthController {
     }
 
     @PostMapping("/signup")
-    public String signup(@ModelAttribute Usuario usuario) {
+    public String signup(@ModelAttribute Usuario usuario, Model model) {
+        if (usuarioDao.findByEmail(usuario.getEmail()) != null) {
+            model.addAttribute("erro", "E-mail já cadastrado");
+            return "signup";
+        }
         usuario.setSenha(passwordEncoder.encode(usuario.getSenha()));
         usuario.setRole(Role.CLIENTE);
 
         // Usando DAO em vez do repository
-        usuarioDao.cadastrar(usuario); // ou insert/update dependendo da sua implementação DAO
+        try {
+            usuarioDao.cadastrar(usuario); // ou insert/update dependendo da sua implementação DAO
+        } catch (DataIntegrityViolationException e) {
+            // Cadastro simultâneo com o mesmo e-mail barrado pelo índice único
+            model.addAttribute("erro", "E-mail já cadastrado");
+            return "signup";
+        }
+        userCache.removeUserFromCache(usuario.getEmail());
 
         return "redirect:/login";
     }
@@ -0,0 +1,47 @@
+package br.com.fiap.calmarket.controller;
+
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.caffeine.CaffeineCache;
+import org.springframework.cache.transaction.TransactionAwareCacheDecorator;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+@RestController
+@RequestMapping("/produtos/cache")
+public class CacheController {
+
+    private final CacheManager cacheManager;
+
+    public CacheController(CacheManager cacheManager) {
+        this.cacheManager = cacheManager;
+    }
+
+    // Contadores de acerto, falta e remoção de cada cache
+    @GetMapping("/estatisticas")
+    public Map<String, Map<String, Object>> estatisticas() {
+        Map<String, Map<String, Object>> resultado = new LinkedHashMap<>();
+        for (String nome : cacheManager.getCacheNames()) {
+            Cache cache = cacheManager.getCache(nome);
+            if (cache instanceof TransactionAwareCacheDecorator decorator)
+                cache = decorator.getTargetCache();
+            if (!(cache instanceof CaffeineCache caffeine))
+                continue;
+
+            CacheStats stats = caffeine.getNativeCache().stats();
+            Map<String, Object> valores = new LinkedHashMap<>();
+            valores.put("tamanho", caffeine.getNativeCache().estimatedSize());
+            valores.put("acertos", stats.hitCount());
+            valores.put("faltas", stats.missCount());
+            valores.put("remocoes", stats.evictionCount());
+            valores.put("taxaAcerto", stats.hitRate());
+            resultado.put(nome, valores);
+        }
+        return resultado;
+    }
+}
@@ -1,28 +1,79 @@
 package br.com.fiap.calmarket.controller;
 
+import br.com.fiap.calmarket.Exception.SobrecargaException;
 import br.com.fiap.calmarket.dao.ProdutoDaoImpl;
+import br.com.fiap.calmarket.dto.AlteracoesProdutos;
+import br.com.fiap.calmarket.dto.EstatisticaSetor;
+import br.com.fiap.calmarket.dto.ProdutoFiltro;
+import br.com.fiap.calmarket.dto.ProdutoPatch;
+import br.com.fiap.calmarket.dto.ResultadoLote;
+import br.com.fiap.calmarket.dto.Sugestao;
 import br.com.fiap.calmarket.model.Produto;
+import br.com.fiap.calmarket.service.CatalogoVersao;
+import br.com.fiap.calmarket.service.EstatisticasCatalogo;
+import br.com.fiap.calmarket.service.FeedProdutos;
+import br.com.fiap.calmarket.service.IndiceSugestoes;
+import br.com.fiap.calmarket.service.ProdutoExportService;
+import br.com.fiap.calmarket.service.ProdutoLoteService;
+import jakarta.servlet.http.HttpServletRequest;
 import jakarta.validation.Valid;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.hateoas.CollectionModel;
 import org.springframework.hateoas.EntityModel;
+import org.springframework.hateoas.IanaLinkRelations;
+import org.springframework.hateoas.Link;
+import org.springframework.hateoas.MediaTypes;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.InvalidMediaTypeException;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.ServletWebRequest;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
 
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
 import java.util.List;
-
-import static org.springframework.hateoas.server.mvc.WebMvcLinkBuilder.linkTo;
-import static org.springframework.hateoas.server.mvc.WebMvcLinkBuilder.methodOn;
+import java.util.Locale;
+import java.util.zip.GZIPOutputStream;
 
 @RestController
 @RequestMapping("/produtos")
 public class ProdutoController {
 
+    static final int LIMITE_PADRAO = 50;
+    static final int LIMITE_MAXIMO = 500;
+    static final int LIMITE_SUGESTOES = 50;
+    private static final MediaType SMILE = new MediaType("application", "x-jackson-smile");
+
     private final ProdutoDaoImpl produtoDao;
+    private final ProdutoLoteService produtoLoteService;
+    private final ProdutoExportService produtoExportService;
+    private final CatalogoVersao catalogoVersao;
+    private final ProdutoModelAssembler produtoModelAssembler;
+    private final IndiceSugestoes indiceSugestoes;
+    private final EstatisticasCatalogo estatisticasCatalogo;
+    private final FeedProdutos feedProdutos;
 
     @Autowired
-    public ProdutoController(ProdutoDaoImpl produtoDao) {
+    public ProdutoController(ProdutoDaoImpl produtoDao, ProdutoLoteService produtoLoteService,
+                             ProdutoExportService produtoExportService, CatalogoVersao catalogoVersao,
+                             ProdutoModelAssembler produtoModelAssembler, IndiceSugestoes indiceSugestoes,
+                             EstatisticasCatalogo estatisticasCatalogo, FeedProdutos feedProdutos) {
         this.produtoDao = produtoDao;
+        this.produtoLoteService = produtoLoteService;
+        this.produtoExportService = produtoExportService;
+        this.catalogoVersao = catalogoVersao;
+        this.produtoModelAssembler = produtoModelAssembler;
+        this.indiceSugestoes = indiceSugestoes;
+        this.estatisticasCatalogo = estatisticasCatalogo;
+        this.feedProdutos = feedProdutos;
     }
 
     @GetMapping("/index")
@@ -30,48 +81,179 @@ public class ProdutoController {
         return ResponseEntity.ok("Produtos");
     }
 
+    // Listagem paginada por cursor: ?limit=50&after=<id do último produto recebido>
     @GetMapping()
-    public List<Produto> listar() {
-        return produtoDao.listar();
+    public CollectionModel<?> listar(@RequestParam(required = false) Integer limit,
+                                          @RequestParam(required = false) Integer after,
+                                          WebRequest request) {
+        variarPorAccept(request);
+        // Catálogo inalterado desde a última resposta do cliente: 304 sem consultar nem serializar nada
+        if (request.checkNotModified(catalogoVersao.etag(), catalogoVersao.alteradoEm()))
+            return null;
+
+        int limite = limitar(limit);
+        List<Produto> produtos = produtoDao.listar(after, limite);
+
+        CollectionModel<?> model = produtoModelAssembler.toListaModel(produtos, produtoModelAssembler.linkLista(limite, after));
+        if (produtos.size() == limite) {
+            int ultimo = produtos.get(produtos.size() - 1).getId();
+            model.add(produtoModelAssembler.linkLista(limite, ultimo, IanaLinkRelations.NEXT));
+        }
+        return model;
+    }
+
+    // Busca por filtros: ?setor=&tipo=&tamanho=&precoMin=&precoMax=&limit=&after=
+    // Com faixa de preço e sem tipo/tamanho a ordem é (preço, ID) e o link next leva também ?valor=<preço do último>
+    @GetMapping("/busca")
+    public CollectionModel<?> buscar(ProdutoFiltro filtro,
+                                          @RequestParam(required = false) Integer limit,
+                                          @RequestParam(required = false) Integer after,
+                                          @RequestParam(required = false) BigDecimal valor,
+                                          WebRequest request) {
+        variarPorAccept(request);
+        if (request.checkNotModified(catalogoVersao.etag(), catalogoVersao.alteradoEm()))
+            return null;
+
+        int limite = limitar(limit);
+        List<Produto> produtos = produtoDao.buscar(filtro, valor, after, limite);
+
+        CollectionModel<?> model = produtoModelAssembler.toListaModel(produtos,
+                Link.of(ServletUriComponentsBuilder.fromCurrentRequest().toUriString()).withSelfRel());
+        if (produtos.size() == limite) {
+            Produto ultimo = produtos.get(produtos.size() - 1);
+            ServletUriComponentsBuilder proxima = ServletUriComponentsBuilder.fromCurrentRequest();
+            proxima.replaceQueryParam("limit", limite)
+                    .replaceQueryParam("after", ultimo.getId());
+            if (filtro.isOrdenadoPorPreco())
+                proxima.replaceQueryParam("valor", ultimo.getPreco().toPlainString());
+            model.add(Link.of(proxima.toUriString()).withRel(IanaLinkRelations.NEXT));
+        }
+        return model;
+    }
+
+    // Autocomplete por prefixo sobre nome e tipo, atendido pelo índice em memória (503 enquanto ele é carregado)
+    @GetMapping("/sugestoes")
+    public List<Sugestao> sugerir(@RequestParam String q, @RequestParam(defaultValue = "10") int limit) {
+        if (!indiceSugestoes.pronto())
+            throw new SobrecargaException("ÍNDICE DE SUGESTÕES EM CARREGAMENTO");
+        return indiceSugestoes.sugerir(q, Math.max(1, Math.min(limit, LIMITE_SUGESTOES)));
+    }
+
+    // Quantidade e preços mínimo/máximo/médio por setor, mantidos em memória (503 enquanto são carregados)
+    @GetMapping("/estatisticas")
+    public List<EstatisticaSetor> estatisticas() {
+        if (!estatisticasCatalogo.pronto())
+            throw new SobrecargaException("ESTATÍSTICAS DO CATÁLOGO EM CARREGAMENTO");
+        return estatisticasCatalogo.porSetor();
+    }
+
+    // Sincronização incremental: ?desde=<ate da resposta anterior> devolve só o que mudou desde então.
+    // Sem desde, o catálogo inteiro; com mais=true, chamar de novo com desde=ate&after=<ID do último alterado>
+    @GetMapping("/alteracoes")
+    public AlteracoesProdutos alteracoes(@RequestParam(required = false) Long desde,
+                                         @RequestParam(required = false) Integer limit,
+                                         @RequestParam(required = false) Integer after) {
+        return produtoDao.alteracoes(desde, after, limitar(limit));
+    }
+
+    // Alterações em tempo real (Server-Sent Events): eventos CRIADO, ATUALIZADO e REMOVIDO com o ID da alteração.
+    // Ao reconectar, o cliente envia Last-Event-ID e recebe o que perdeu; REINICIO indica que precisa recarregar a listagem
+    @GetMapping(value = "/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter stream(@RequestHeader(value = "Last-Event-ID", required = false) String ultimoId) {
+        return feedProdutos.assinar(ultimoId);
+    }
+
+    static int limitar(Integer limit) {
+        if (limit == null || limit <= 0)
+            return LIMITE_PADRAO;
+        return Math.min(limit, LIMITE_MAXIMO);
     }
 
     @GetMapping("/{id}")
-    public EntityModel<Produto> procurarPorId(@PathVariable int id) {
+    public EntityModel<Produto> procurarPorId(@PathVariable int id, WebRequest request) {
+        variarPorAccept(request);
         Produto produto = produtoDao.buscar(id);
-        return EntityModel.of(produto,
-                linkTo(methodOn(ProdutoController.class).procurarPorId(id)).withSelfRel(),
-                linkTo(methodOn(ProdutoController.class).listar()).withRel("lista"),
-                linkTo(methodOn(ProdutoController.class).removerPorId(id)).withRel("delete"),
-                linkTo(methodOn(ProdutoController.class).atualizar(id, produto)).withRel("update")
-        );
+        // ETag forte a partir da versão do produto e do formato negociado; 304 dispensa a montagem dos links
+        long modificado = produto.getAtualizadoEm() != null ? produto.getAtualizadoEm().toEpochMilli() : -1;
+        if (request.checkNotModified(etag(produto.getVersao(), request.getHeader(HttpHeaders.ACCEPT)), modificado))
+            return null;
+
+        return produtoModelAssembler.toModel(produto);
     }
 
     @PostMapping("/cadastrar")
     public ResponseEntity<EntityModel<Produto>> cadastrar(@RequestBody @Valid Produto produto) {
         Produto novo = produtoDao.cadastrar(produto);
+        return ResponseEntity
+                .created(produtoModelAssembler.uri(novo))
+                .body(produtoModelAssembler.toModel(novo));
+    }
 
-        EntityModel<Produto> model = EntityModel.of(novo,
-                linkTo(methodOn(ProdutoController.class).procurarPorId(novo.getId())).withSelfRel(),
-                linkTo(methodOn(ProdutoController.class).listar()).withRel("lista"),
-                linkTo(methodOn(ProdutoController.class).atualizar(novo.getId(), novo)).withRel("update"),
-                linkTo(methodOn(ProdutoController.class).removerPorId(novo.getId())).withRel("delete")
-        );
 
-        return ResponseEntity
-                .created(linkTo(methodOn(ProdutoController.class).procurarPorId(novo.getId())).toUri())
-                .body(model);
+    // Importação em lote: array JSON ou NDJSON (um produto por linha)
+    @PostMapping(value = "/lote", consumes = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_NDJSON_VALUE})
+    public ResultadoLote cadastrarLote(HttpServletRequest request) throws IOException {
+        return produtoLoteService.importar(request.getInputStream());
     }
 
+    // Exportação do catálogo inteiro em streaming: ?format=csv|ndjson (gzip se o cliente aceitar)
+    @GetMapping("/export")
+    public ResponseEntity<StreamingResponseBody> exportar(@RequestParam(defaultValue = ProdutoExportService.NDJSON) String format,
+                                                          @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String encoding) {
+        MediaType tipo = switch (format) {
+            case ProdutoExportService.CSV -> new MediaType("text", "csv", StandardCharsets.UTF_8);
+            case ProdutoExportService.NDJSON -> MediaType.APPLICATION_NDJSON;
+            default -> throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Formato inválido: " + format);
+        };
+        String gzip = codificacaoGzip(encoding);
+
+        StreamingResponseBody corpo = saida -> {
+            if (gzip != null) {
+                try (GZIPOutputStream compactado = new GZIPOutputStream(saida, 8192)) {
+                    produtoExportService.exportar(format, compactado);
+                }
+            } else {
+                produtoExportService.exportar(format, saida);
+            }
+        };
+
+        ResponseEntity.BodyBuilder resposta = ResponseEntity.ok()
+                .contentType(tipo)
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=produtos." + format)
+                .header(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+        if (gzip != null)
+            resposta.header(HttpHeaders.CONTENT_ENCODING, gzip);
+        return resposta.body(corpo);
+    }
 
+    // Mesma regra de versão do PATCH: no corpo ou no If-Match; versão desatualizada retorna 409
     @PutMapping("/{id}")
-    public EntityModel<Produto> atualizar(@PathVariable int id, @Valid @RequestBody Produto produto) {
+    public ResponseEntity<EntityModel<Produto>> atualizar(@PathVariable int id, @Valid @RequestBody Produto produto,
+                                                          @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
+        if (produto.getVersao() == null && ifMatch != null)
+            produto.setVersao(versao(ifMatch));
         Produto atualizado = produtoDao.atualizar(produto, id);
 
-        return EntityModel.of(atualizado,
-                linkTo(methodOn(ProdutoController.class).procurarPorId(id)).withSelfRel(),
-                linkTo(methodOn(ProdutoController.class).listar()).withRel("lista"),
-                linkTo(methodOn(ProdutoController.class).removerPorId(id)).withRel("delete")
-        );
+        return ResponseEntity.ok()
+                .eTag(etag(atualizado.getVersao()))
+                .body(produtoModelAssembler.toModelAtualizado(atualizado));
+    }
+
+    // Atualização parcial: só os campos enviados são alterados; versão desatualizada retorna 409.
+    // A versão pode vir no corpo ou no cabeçalho If-Match (ETag recebido no GET). Corpo sem campos retorna 400
+    @PatchMapping("/{id}")
+    public ResponseEntity<Void> atualizarParcial(@PathVariable int id, @Valid @RequestBody ProdutoPatch patch,
+                                                 @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
+        if (patch.semAlteracoes())
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Nenhum campo para alterar");
+        if (patch.getVersao() == null && ifMatch != null)
+            patch.setVersao(versao(ifMatch));
+        produtoDao.atualizarParcial(id, patch);
+
+        ResponseEntity.HeadersBuilder<?> resposta = ResponseEntity.noContent(); // 204
+        if (patch.getVersao() != null)
+            resposta.eTag(etag(patch.getVersao() + 1));
+        return resposta.build();
     }
 
     @DeleteMapping("/{id}")
@@ -80,5 +262,100 @@ public class ProdutoController {
         return ResponseEntity.noContent().build(); // 204
     }
 
+    // A mesma URL responde em JSON, CBOR ou Smile conforme o Accept: caches intermediários precisam separar as representações
+    private static void variarPorAccept(WebRequest request) {
+        if (request instanceof ServletWebRequest servlet && servlet.getResponse() != null)
+            servlet.getResponse().addHeader(HttpHeaders.VARY, HttpHeaders.ACCEPT);
+    }
+
+    static String etag(Long versao) {
+        return "\"" + versao + "\"";
+    }
+
+    // "gzip" ou "x-gzip" (o nome que o cliente usou) se o Accept-Encoding aceita gzip, ou null para enviar sem compressão.
+    // q=0 recusa a codificação; "*" vale para gzip quando ele não aparece com nome próprio
+    static String codificacaoGzip(String acceptEncoding) {
+        if (acceptEncoding == null || acceptEncoding.isBlank())
+            return null;
+        Double gzip = null, xGzip = null, curinga = null;
+        for (String item : acceptEncoding.split(",")) {
+            String[] partes = item.split(";");
+            String codificacao = partes[0].trim().toLowerCase(Locale.ROOT);
+            double q = 1;
+            for (int i = 1; i < partes.length; i++) {
+                String parametro = partes[i].trim();
+                if (parametro.length() > 2 && parametro.substring(0, 2).equalsIgnoreCase("q=")) {
+                    try {
+                        q = Double.parseDouble(parametro.substring(2).trim());
+                    } catch (NumberFormatException e) {
+                        q = 0; // q inválido não conta como aceite
+                    }
+                }
+            }
+            switch (codificacao) {
+                case "gzip" -> gzip = q;
+                case "x-gzip" -> xGzip = q;
+                case "*" -> curinga = q;
+                default -> {
+                }
+            }
+        }
+        if (gzip != null)
+            return gzip > 0 ? "gzip" : null;
+        if (xGzip != null)
+            return xGzip > 0 ? "x-gzip" : null;
+        return curinga != null && curinga > 0 ? "gzip" : null;
+    }
+
+    // ETag forte vale para os bytes de uma representação: JSON fica "<versão>", CBOR e Smile ganham sufixo.
+    // Todos carregam a mesma versão, então qualquer um serve no If-Match do PATCH
+    static String etag(Long versao, String accept) {
+        MediaType formato = formatoNegociado(accept);
+        if (formato == null)
+            return etag(versao);
+        return "\"" + versao + "-" + (formato.equals(MediaType.APPLICATION_CBOR) ? "cbor" : "smile") + "\"";
+    }
+
+    // Formato binário que a negociação escolhe para o Accept (maior q; em empate, o tipo exato vence o curinga),
+    // ou null para JSON/HAL
+    static MediaType formatoNegociado(String accept) {
+        if (accept == null || accept.isBlank())
+            return null;
+        List<MediaType> aceitos;
+        try {
+            aceitos = MediaType.parseMediaTypes(accept);
+        } catch (InvalidMediaTypeException e) {
+            return null;
+        }
+        MediaType escolhido = null;
+        double melhor = 0;
+        for (MediaType candidato : List.of(MediaTypes.HAL_JSON, MediaType.APPLICATION_JSON, MediaType.APPLICATION_CBOR, SMILE)) {
+            for (MediaType aceito : aceitos) {
+                if (!aceito.includes(candidato))
+                    continue;
+                double nota = aceito.getQualityValue() * 10 + (aceito.isWildcardType() || aceito.isWildcardSubtype() ? 0 : 1);
+                if (nota > melhor) {
+                    melhor = nota;
+                    escolhido = candidato;
+                }
+            }
+        }
+        return escolhido == null || escolhido.getSubtype().contains("json") ? null : escolhido;
+    }
+
+    private static Long versao(String etag) {
+        String valor = etag.trim();
+        if (valor.startsWith("W/"))
+            valor = valor.substring(2);
+        valor = valor.replace("\"", "");
+        // "<versão>-cbor" / "<versão>-smile": a versão é a mesma em qualquer formato
+        if (valor.indexOf('-') > 0)
+            valor = valor.substring(0, valor.indexOf('-'));
+        try {
+            return Long.valueOf(valor);
+        } catch (NumberFormatException e) {
+            throw new ResponseStatusException(HttpStatus.PRECONDITION_FAILED, "If-Match inválido: " + etag);
+        }
+    }
 
 }
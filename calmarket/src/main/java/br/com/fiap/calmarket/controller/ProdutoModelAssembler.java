@@ -0,0 +1,91 @@
+package br.com.fiap.calmarket.controller;
+
+import br.com.fiap.calmarket.model.Produto;
+import org.springframework.core.annotation.AnnotatedElementUtils;
+import org.springframework.hateoas.CollectionModel;
+import org.springframework.hateoas.EntityModel;
+import org.springframework.hateoas.IanaLinkRelations;
+import org.springframework.hateoas.Link;
+import org.springframework.hateoas.LinkRelation;
+import org.springframework.hateoas.server.LinkRelationProvider;
+import org.springframework.hateoas.server.RepresentationModelAssembler;
+import org.springframework.hateoas.server.core.EmbeddedWrapper;
+import org.springframework.hateoas.server.core.EmbeddedWrappers;
+import org.springframework.hateoas.server.mvc.BasicLinkBuilder;
+import org.springframework.stereotype.Component;
+import org.springframework.web.bind.annotation.RequestMapping;
+
+import java.net.URI;
+import java.util.Collection;
+import java.util.List;
+
+// Monta os links HATEOAS de Produto a partir de caminhos resolvidos uma única vez na inicialização,
+// sem os proxies de linkTo(methodOn(...)) a cada requisição
+@Component
+public class ProdutoModelAssembler implements RepresentationModelAssembler<Produto, EntityModel<Produto>> {
+
+    private final String caminhoProdutos;
+    private final String caminhoItem;
+    private final String templateLista;
+    private final LinkRelation relacaoLista;
+    private final EmbeddedWrappers wrappers = new EmbeddedWrappers(false);
+
+    public ProdutoModelAssembler(LinkRelationProvider relacoes) {
+        RequestMapping mapping = AnnotatedElementUtils.findMergedAnnotation(ProdutoController.class, RequestMapping.class);
+        this.caminhoProdutos = mapping.path()[0];
+        this.caminhoItem = caminhoProdutos + "/";
+        this.templateLista = caminhoProdutos + "{?limit,after}";
+        this.relacaoLista = relacoes.getCollectionResourceRelFor(Produto.class);
+    }
+
+    @Override
+    public EntityModel<Produto> toModel(Produto produto) {
+        String base = base();
+        String item = base + caminhoItem + produto.getId();
+        return EntityModel.of(produto,
+                Link.of(item).withSelfRel(),
+                Link.of(base + templateLista).withRel("lista"),
+                Link.of(item).withRel("delete"),
+                Link.of(item).withRel("update")
+        );
+    }
+
+    // Resposta do PUT: mantém os links que ela sempre teve (self, lista e delete, sem update)
+    public EntityModel<Produto> toModelAtualizado(Produto produto) {
+        String base = base();
+        String item = base + caminhoItem + produto.getId();
+        return EntityModel.of(produto,
+                Link.of(item).withSelfRel(),
+                Link.of(base + templateLista).withRel("lista"),
+                Link.of(item).withRel("delete")
+        );
+    }
+
+    // Página de produtos em HAL (_embedded.produtoList). O HAL monta o _embedded item a item, copiando a lista
+    // a cada inclusão (custo quadrático no tamanho da página); em um único EmbeddedWrapper o custo fica linear
+    public CollectionModel<?> toListaModel(Collection<?> produtos, Link... links) {
+        if (produtos.isEmpty())
+            return CollectionModel.of(produtos, links);
+        EmbeddedWrapper pagina = wrappers.wrap(produtos, relacaoLista);
+        return CollectionModel.of(List.of(pagina), links);
+    }
+
+    public URI uri(Produto produto) {
+        return URI.create(base() + caminhoItem + produto.getId());
+    }
+
+    // Link para uma página da listagem paginada por cursor
+    public Link linkLista(int limite, Integer after, LinkRelation rel) {
+        String href = base() + caminhoProdutos + "?limit=" + limite + (after != null ? "&after=" + after : "");
+        return Link.of(href, rel);
+    }
+
+    public Link linkLista(int limite, Integer after) {
+        return linkLista(limite, after, IanaLinkRelations.SELF);
+    }
+
+    // Esquema, host e contexto da requisição atual (respeitando cabeçalhos X-Forwarded-*)
+    private String base() {
+        return BasicLinkBuilder.linkToCurrentMapping().toString();
+    }
+}
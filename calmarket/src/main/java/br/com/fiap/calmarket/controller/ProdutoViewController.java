@@ -1,8 +1,12 @@
 package br.com.fiap.calmarket.controller;
 
 import br.com.fiap.calmarket.dao.ProdutoDaoImpl;
+import br.com.fiap.calmarket.dto.Ordenacao;
 import br.com.fiap.calmarket.model.Produto;
 import br.com.fiap.calmarket.model.Setor;
+import br.com.fiap.calmarket.service.FragmentosProdutos;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
 import org.springframework.stereotype.Controller;
 import org.springframework.ui.Model;
 import org.springframework.web.bind.annotation.*;
@@ -14,15 +18,23 @@ import jakarta.validation.Valid;
 public class ProdutoViewController {
 
     private final ProdutoDaoImpl produtoDao;
+    private final FragmentosProdutos fragmentosProdutos;
 
-    public ProdutoViewController(ProdutoDaoImpl produtoDao) {
+    public ProdutoViewController(ProdutoDaoImpl produtoDao, FragmentosProdutos fragmentosProdutos) {
         this.produtoDao = produtoDao;
+        this.fragmentosProdutos = fragmentosProdutos;
     }
 
-    // Lista todos os produtos
+    // Lista os produtos ordenados (?sort=nome|-nome|preco|-preco) e paginados por cursor (?limit=&after=&valor=).
+    // A tabela vem pronta do cache de fragmentos; só o esqueleto da página é renderizado a cada requisição.
     @GetMapping
-    public String listar(Model model) {
-        model.addAttribute("produtos", produtoDao.listar());
+    public String listar(@RequestParam(required = false) Integer limit,
+                         @RequestParam(required = false) Integer after,
+                         @RequestParam(required = false) String valor,
+                         @RequestParam(required = false) String sort,
+                         Model model, HttpServletRequest request, HttpServletResponse response) {
+        int limite = ProdutoController.limitar(limit);
+        model.addAttribute("tabela", fragmentosProdutos.tabela(Ordenacao.de(sort), valor, after, limite, request, response));
         return "produtos";
     }
 
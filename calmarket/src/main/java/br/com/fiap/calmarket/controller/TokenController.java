@@ -0,0 +1,69 @@
+package br.com.fiap.calmarket.controller;
+
+import br.com.fiap.calmarket.Exception.SobrecargaException;
+import br.com.fiap.calmarket.config.TokenSecurityConfig;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.security.authentication.AuthenticationManager;
+import org.springframework.security.authentication.InternalAuthenticationServiceException;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.oauth2.jose.jws.MacAlgorithm;
+import org.springframework.security.oauth2.jwt.*;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+
+// Emite o token usado pelo modo sem sessão (TokenSecurityConfig)
+@RestController
+@ConditionalOnProperty(name = "calmarket.token.habilitado", havingValue = "true")
+public class TokenController {
+
+    private final AuthenticationManager authenticationManager;
+    private final JwtEncoder jwtEncoder;
+    private final Duration validade;
+
+    public TokenController(AuthenticationManager authenticationManager, JwtEncoder jwtEncoder,
+                           @Value("${calmarket.token.validade}") Duration validade) {
+        this.authenticationManager = authenticationManager;
+        this.jwtEncoder = jwtEncoder;
+        this.validade = validade;
+    }
+
+    // Corpo: {"email": "...", "senha": "..."}
+    @PostMapping("/auth/token")
+    public Map<String, Object> emitir(@RequestBody Map<String, String> credenciais) {
+        Authentication autenticacao;
+        try {
+            autenticacao = authenticationManager.authenticate(
+                    new UsernamePasswordAuthenticationToken(credenciais.get("email"), credenciais.get("senha")));
+        } catch (InternalAuthenticationServiceException e) {
+            // Pool de hash cheio: 503 com Retry-After em vez do 401 do ponto de entrada
+            if (e.getCause() instanceof SobrecargaException sobrecarga)
+                throw sobrecarga;
+            throw e;
+        }
+
+        List<String> papeis = autenticacao.getAuthorities().stream()
+                .map(GrantedAuthority::getAuthority)
+                .map(papel -> papel.replaceFirst("^ROLE_", ""))
+                .toList();
+        Instant agora = Instant.now();
+        JwtClaimsSet claims = JwtClaimsSet.builder()
+                .subject(autenticacao.getName())
+                .issuedAt(agora)
+                .expiresAt(agora.plus(validade))
+                .claim(TokenSecurityConfig.CLAIM_ROLES, papeis)
+                .build();
+        String token = jwtEncoder.encode(JwtEncoderParameters.from(JwsHeader.with(MacAlgorithm.HS256).build(), claims))
+                .getTokenValue();
+
+        return Map.of("token", token, "tipo", "Bearer", "expiraEm", validade.toSeconds());
+    }
+}
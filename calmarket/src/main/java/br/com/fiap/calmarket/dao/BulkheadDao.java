@@ -0,0 +1,89 @@
+package br.com.fiap.calmarket.dao;
+
+import br.com.fiap.calmarket.Exception.SobrecargaException;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+// Limita as chamadas simultâneas ao DAO por semáforo, e não pelo tamanho do pool de threads.
+// Roda dentro do @Cacheable (CacheConfig) e fora do @Transactional: acerto de cache não gasta permissão,
+// e a permissão é obtida antes de pegar a conexão.
+// Sem permissão livre a chamada é recusada (503 com Retry-After) em vez de esperar pela conexão no Hikari;
+// calmarket.bulkhead.espera-ms > 0 permite uma espera curta para absorver picos.
+// O exportar segura a conexão pelo stream inteiro, então tem permissões próprias (calmarket.bulkhead.exportacoes),
+// tiradas do total para que exportações longas não ocupem as permissões das leituras curtas.
+@Aspect
+@Component
+@Order(BulkheadDao.ORDEM)
+@ConditionalOnProperty(name = "calmarket.bulkhead.habilitado", havingValue = "true")
+public class BulkheadDao {
+
+    // Depois do cache (CacheConfig.ORDEM) e antes do @Transactional (LOWEST_PRECEDENCE)
+    public static final int ORDEM = Ordered.LOWEST_PRECEDENCE - 10;
+
+    // Chamadas aninhadas na mesma thread reaproveitam a permissão (evita deadlock com a conexão já em uso)
+    private static final ThreadLocal<Integer> PROFUNDIDADE = ThreadLocal.withInitial(() -> 0);
+
+    private final Semaphore permissoes;
+    private final Semaphore exportacoes;
+    private final long esperaMs;
+
+    public BulkheadDao(@Value("${calmarket.bulkhead.permissoes}") int permissoes,
+                       @Value("${calmarket.bulkhead.exportacoes}") int exportacoes,
+                       @Value("${calmarket.bulkhead.espera-ms}") long esperaMs) {
+        if (exportacoes < 1 || exportacoes >= permissoes)
+            throw new IllegalStateException("calmarket.bulkhead.exportacoes deve ficar entre 1 e permissoes - 1 (permissoes="
+                    + permissoes + ", exportacoes=" + exportacoes + ")");
+        this.permissoes = new Semaphore(permissoes - exportacoes, true);
+        this.exportacoes = new Semaphore(exportacoes, true);
+        this.esperaMs = esperaMs;
+    }
+
+    @Around("execution(public * br.com.fiap.calmarket.dao.GenericDao+.*(..)) && !execution(* br.com.fiap.calmarket.dao.ProdutoDao+.exportar(..))")
+    public Object limitar(ProceedingJoinPoint chamada) throws Throwable {
+        return limitar(chamada, permissoes);
+    }
+
+    @Around("execution(* br.com.fiap.calmarket.dao.ProdutoDao+.exportar(..))")
+    public Object limitarExportacao(ProceedingJoinPoint chamada) throws Throwable {
+        return limitar(chamada, exportacoes);
+    }
+
+    private Object limitar(ProceedingJoinPoint chamada, Semaphore semaforo) throws Throwable {
+        int profundidade = PROFUNDIDADE.get();
+        if (profundidade > 0)
+            return chamada.proceed();
+
+        try {
+            boolean obtida = esperaMs > 0 ? semaforo.tryAcquire(esperaMs, TimeUnit.MILLISECONDS) : semaforo.tryAcquire();
+            if (!obtida)
+                throw new SobrecargaException("BANCO DE DADOS SOBRECARREGADO");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SobrecargaException("ACESSO AO BANCO INTERROMPIDO");
+        }
+        PROFUNDIDADE.set(1);
+        try {
+            return chamada.proceed();
+        } finally {
+            PROFUNDIDADE.remove();
+            semaforo.release();
+        }
+    }
+
+    public int disponiveis() {
+        return permissoes.availablePermits();
+    }
+
+    public int exportacoesDisponiveis() {
+        return exportacoes.availablePermits();
+    }
+}
@@ -12,4 +12,7 @@ public interface GenericDao<T,K> {
     T atualizar(T entidade, K id);
 
     List<T> listar();
+
+    // Paginação por cursor (keyset): retorna até 'limite' registros com ID maior que 'apos'
+    List<T> listar(K apos, int limite);
 }
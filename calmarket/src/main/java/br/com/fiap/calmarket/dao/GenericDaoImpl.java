@@ -3,6 +3,9 @@ package br.com.fiap.calmarket.dao;
 import br.com.fiap.calmarket.Exception.IdNaoEncontradoException;
 import jakarta.persistence.EntityManager;
 import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.TypedQuery;
+import jakarta.persistence.metamodel.EntityType;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.lang.reflect.ParameterizedType;
@@ -15,6 +18,8 @@ public class GenericDaoImpl<T, K> implements GenericDao<T, K> {
 
     private final Class<T> clazz;
 
+    private String nomeId;
+
     @SuppressWarnings("unchecked")
     public GenericDaoImpl() {
         this.clazz = (Class<T>) ((ParameterizedType) getClass()
@@ -55,6 +60,33 @@ public class GenericDaoImpl<T, K> implements GenericDao<T, K> {
     @Override
     @Transactional(readOnly = true)
     public List<T> listar() {
-        return em.createQuery("FROM " + clazz.getSimpleName(), clazz).getResultList();
+        return em.createQuery("FROM " + clazz.getSimpleName(), clazz)
+                .setHint(HibernateHints.HINT_READ_ONLY, true)
+                .getResultList();
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public List<T> listar(K apos, int limite) {
+        String id = nomeId();
+        String jpql = "FROM " + clazz.getSimpleName() + " e"
+                + (apos != null ? " WHERE e." + id + " > :apos" : "")
+                + " ORDER BY e." + id;
+        // Somente leitura: o Hibernate não guarda cópia de cada linha para dirty checking
+        TypedQuery<T> query = em.createQuery(jpql, clazz)
+                .setMaxResults(limite)
+                .setHint(HibernateHints.HINT_READ_ONLY, true);
+        if (apos != null)
+            query.setParameter("apos", apos);
+        return query.getResultList();
+    }
+
+    // Nome do atributo @Id da entidade, usado como chave do cursor
+    protected String nomeId() {
+        if (nomeId == null) {
+            EntityType<T> tipo = em.getMetamodel().entity(clazz);
+            nomeId = tipo.getId(tipo.getIdType().getJavaType()).getName();
+        }
+        return nomeId;
     }
 }
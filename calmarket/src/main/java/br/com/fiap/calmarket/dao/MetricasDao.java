@@ -0,0 +1,65 @@
+package br.com.fiap.calmarket.dao;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.springframework.aop.support.AopUtils;
+import org.springframework.core.ResolvableType;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+// Timer "calmarket.dao" para toda operação pública de GenericDao, com tags entidade, operacao e resultado.
+// Fica dentro do cache e do bulkhead e fora do @Transactional: mede o trabalho no banco, incluindo o commit
+// (os acertos de cache aparecem em /produtos/cache/estatisticas).
+@Aspect
+@Component
+@Order(BulkheadDao.ORDEM + 1)
+public class MetricasDao {
+
+    public static final String METRICA = "calmarket.dao";
+
+    private final MeterRegistry registry;
+    private final Map<Class<?>, String> entidades = new ConcurrentHashMap<>();
+    private final Map<String, Timer> timers = new ConcurrentHashMap<>();
+
+    public MetricasDao(MeterRegistry registry) {
+        this.registry = registry;
+    }
+
+    @Around("execution(public * br.com.fiap.calmarket.dao.GenericDao+.*(..))")
+    public Object medir(ProceedingJoinPoint chamada) throws Throwable {
+        String entidade = entidades.computeIfAbsent(AopUtils.getTargetClass(chamada.getTarget()), MetricasDao::entidade);
+        String operacao = chamada.getSignature().getName();
+        long inicio = System.nanoTime();
+        String resultado = "sucesso";
+        try {
+            return chamada.proceed();
+        } catch (Throwable e) {
+            resultado = e.getClass().getSimpleName();
+            throw e;
+        } finally {
+            timer(entidade, operacao, resultado).record(System.nanoTime() - inicio, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    private Timer timer(String entidade, String operacao, String resultado) {
+        return timers.computeIfAbsent(entidade + '.' + operacao + '.' + resultado, chave -> Timer.builder(METRICA)
+                .description("Tempo das operações do DAO")
+                .tag("entidade", entidade)
+                .tag("operacao", operacao)
+                .tag("resultado", resultado)
+                .register(registry));
+    }
+
+    // ProdutoDaoImpl -> Produto (primeiro parâmetro genérico de GenericDaoImpl)
+    private static String entidade(Class<?> dao) {
+        Class<?> entidade = ResolvableType.forClass(dao).as(GenericDaoImpl.class).getGeneric(0).resolve();
+        return entidade != null ? entidade.getSimpleName() : dao.getSimpleName();
+    }
+}
@@ -0,0 +1,96 @@
+package br.com.fiap.calmarket.dao;
+
+import org.hibernate.SessionEventListener;
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+
+import java.util.HashMap;
+import java.util.Map;
+
+// Conta os statements e o tempo de banco da requisição atual (ThreadLocal aberto pelo OrcamentoSqlFilter).
+// Registrado no Hibernate como StatementInspector (texto do SQL) e SessionEventListener (tempo de execução).
+public class MonitorSql implements StatementInspector, SessionEventListener {
+
+    private static final ThreadLocal<Medicao> ATUAL = new ThreadLocal<>();
+
+    public static void iniciar() {
+        ATUAL.set(new Medicao());
+    }
+
+    public static Medicao atual() {
+        return ATUAL.get();
+    }
+
+    public static Medicao encerrar() {
+        Medicao medicao = ATUAL.get();
+        ATUAL.remove();
+        return medicao;
+    }
+
+    @Override
+    public String inspect(String sql) {
+        Medicao medicao = ATUAL.get();
+        if (medicao != null)
+            medicao.registrar(sql);
+        return sql;
+    }
+
+    @Override
+    public void jdbcExecuteStatementStart() {
+        iniciarExecucao();
+    }
+
+    @Override
+    public void jdbcExecuteStatementEnd() {
+        encerrarExecucao();
+    }
+
+    @Override
+    public void jdbcExecuteBatchStart() {
+        iniciarExecucao();
+    }
+
+    @Override
+    public void jdbcExecuteBatchEnd() {
+        encerrarExecucao();
+    }
+
+    private static void iniciarExecucao() {
+        Medicao medicao = ATUAL.get();
+        if (medicao != null)
+            medicao.inicioExecucao = System.nanoTime();
+    }
+
+    private static void encerrarExecucao() {
+        Medicao medicao = ATUAL.get();
+        if (medicao != null && medicao.inicioExecucao != 0) {
+            medicao.nanos += System.nanoTime() - medicao.inicioExecucao;
+            medicao.inicioExecucao = 0;
+        }
+    }
+
+    public static class Medicao {
+        private int statements;
+        private long nanos;
+        private long inicioExecucao;
+        // SELECTs iguais repetidos na mesma requisição indicam N+1
+        private final Map<String, Integer> selects = new HashMap<>();
+
+        private void registrar(String sql) {
+            statements++;
+            if (sql.regionMatches(true, 0, "select", 0, 6))
+                selects.merge(sql, 1, Integer::sum);
+        }
+
+        public int getStatements() {
+            return statements;
+        }
+
+        public long getMillis() {
+            return nanos / 1_000_000;
+        }
+
+        public Map<String, Integer> getSelects() {
+            return selects;
+        }
+    }
+}
@@ -1,7 +1,44 @@
 package br.com.fiap.calmarket.dao;
 
+import br.com.fiap.calmarket.dto.AlteracoesProdutos;
+import br.com.fiap.calmarket.dto.Ordenacao;
+import br.com.fiap.calmarket.dto.ProdutoFiltro;
+import br.com.fiap.calmarket.dto.ProdutoPatch;
+import br.com.fiap.calmarket.dto.ProdutoResumo;
 import br.com.fiap.calmarket.model.Produto;
+import br.com.fiap.calmarket.model.SequenciaAlteracao;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.function.Consumer;
 
 public interface ProdutoDao extends GenericDao<Produto, Integer> {
 
+    // Busca por setor, tipo, tamanho e faixa de preço, paginada por cursor (ID).
+    // Cada combinação é lida por um índice (filtros..., ID) de Produto; os filtros fora do índice são conferidos
+    // linha a linha, então o custo da página depende da seletividade deles e não do tamanho da tabela.
+    // Faixa de preço sem tipo/tamanho (ProdutoFiltro.isOrdenadoPorPreco) vem em ordem de (preço, ID), com cursor
+    // (precoApos, apos), para ser lida pelo índice (SETOR, PRECO, ID) ou (PRECO, ID)
+    List<Produto> buscar(ProdutoFiltro filtro, BigDecimal precoApos, Integer apos, int limite);
+
+    // Listagem ordenada com cursor composto: produtos depois de (valorApos, apos) na ordenação escolhida.
+    // Projeção só com id, nome, setor e preço, para as telas de listagem
+    List<ProdutoResumo> listarResumo(Ordenacao ordenacao, String valorApos, Integer apos, int limite);
+
+    // Grava todos os produtos em uma única transação, usando INSERTs em lote
+    List<Produto> cadastrarLote(List<Produto> produtos);
+
+    // Altera só os campos informados com um único UPDATE condicionado à versão
+    void atualizarParcial(Integer id, ProdutoPatch patch);
+
+    // Produtos alterados e IDs removidos depois da posição "desde" da sequência de alterações,
+    // paginados por (sequência, ID); sem "desde", o catálogo inteiro
+    AlteracoesProdutos alteracoes(Long desde, Integer apos, int limite);
+
+    // Contador de alterações como está confirmado no primário, fora de qualquer transação em andamento
+    // (nunca de uma réplica, nem contado como escrita do usuário); null antes da primeira subida
+    SequenciaAlteracao sequenciaAlteracao();
+
+    // Percorre toda a tabela com um cursor somente-avanço, entregando um produto por vez já desanexado
+    void exportar(Consumer<Produto> consumidor);
 }
@@ -1,11 +1,452 @@
 package br.com.fiap.calmarket.dao;
 
+import br.com.fiap.calmarket.Exception.ConflitoVersaoException;
+import br.com.fiap.calmarket.Exception.IdNaoEncontradoException;
+import br.com.fiap.calmarket.config.CacheConfig;
+import br.com.fiap.calmarket.dto.AlteracoesProdutos;
+import br.com.fiap.calmarket.dto.Ordenacao;
+import br.com.fiap.calmarket.dto.ProdutoFiltro;
+import br.com.fiap.calmarket.dto.ProdutoPatch;
+import br.com.fiap.calmarket.dto.ProdutoResumo;
+import br.com.fiap.calmarket.event.ProdutoAlteradoEvent;
 import br.com.fiap.calmarket.model.Produto;
+import br.com.fiap.calmarket.model.ProdutoRemovido;
+import br.com.fiap.calmarket.model.SequenciaAlteracao;
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.OptimisticLockException;
+import jakarta.persistence.Query;
+import jakarta.persistence.TypedQuery;
+import org.hibernate.ScrollMode;
+import org.hibernate.ScrollableResults;
+import org.hibernate.Session;
+import org.hibernate.dialect.Dialect;
+import org.hibernate.dialect.MySQLDialect;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.cache.annotation.CacheEvict;
+import org.springframework.cache.annotation.Cacheable;
+import org.springframework.cache.annotation.Caching;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
 
 @Repository
 public class ProdutoDaoImpl extends GenericDaoImpl<Produto, Integer> implements ProdutoDao {
-    public ProdutoDaoImpl() {
+    private static final int TAMANHO_FETCH = 1000;
+    // No Connector/J, fetch size Integer.MIN_VALUE em um ResultSet somente-avanço entrega as linhas uma a uma,
+    // sem carregar o resultado inteiro e sem cursor no servidor (useCursorFetch)
+    private static final int FETCH_STREAMING_MYSQL = Integer.MIN_VALUE;
+    // IDs por UPDATE ao gravar a posição das alterações de uma transação
+    private static final int BLOCO_POSICAO = 1000;
+
+    private final ApplicationEventPublisher publisher;
+
+    public ProdutoDaoImpl(ApplicationEventPublisher publisher) {
         super();
+        this.publisher = publisher;
+    }
+
+    // Leituras passam pelo cache; escritas invalidam o produto alterado e todas as páginas em cache.
+    // sync = true: a carga passa por Cache.get(chave, valueLoader), que lê do primário logo depois de um commit
+
+    @Override
+    @Transactional(readOnly = true)
+    @Cacheable(cacheNames = CacheConfig.PRODUTOS, key = "#id", sync = true)
+    public Produto buscar(Integer id) {
+        return super.buscar(id);
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    @Cacheable(cacheNames = CacheConfig.PRODUTOS_LISTA, key = "@catalogoVersao.atual() + ':' + #apos + ':' + #limite", sync = true)
+    public List<Produto> listar(Integer apos, int limite) {
+        return super.listar(apos, limite);
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public List<ProdutoResumo> listarResumo(Ordenacao ordenacao, String valorApos, Integer apos, int limite) {
+        String coluna = "p." + ordenacao.getAtributo();
+        String comparacao = ordenacao.isCrescente() ? " > " : " < ";
+        String direcao = ordenacao.isCrescente() ? " ASC" : " DESC";
+        Object valor = ordenacao == Ordenacao.ID ? apos : ordenacao.converter(valorApos);
+
+        // Cursor (coluna, id): mesma ordem do índice, então cada página é uma leitura de intervalo
+        StringBuilder jpql = new StringBuilder("SELECT new br.com.fiap.calmarket.dto.ProdutoResumo(p.id, p.nome, p.setor, p.preco)"
+                + " FROM Produto p");
+        if (apos != null && valor != null)
+            jpql.append(" WHERE ").append(coluna).append(comparacao).append(":valor OR (")
+                    .append(coluna).append(" = :valor AND p.id").append(comparacao).append(":apos)");
+        jpql.append(" ORDER BY ").append(coluna).append(direcao).append(", p.id").append(direcao);
+
+        TypedQuery<ProdutoResumo> query = em.createQuery(jpql.toString(), ProdutoResumo.class)
+                .setMaxResults(limite)
+                .setHint(HibernateHints.HINT_READ_ONLY, true);
+        if (apos != null && valor != null) {
+            query.setParameter("valor", valor);
+            query.setParameter("apos", apos);
+        }
+        return query.getResultList();
+    }
+
+    @Override
+    @Transactional
+    @CacheEvict(cacheNames = CacheConfig.PRODUTOS_LISTA, allEntries = true)
+    public Produto cadastrar(Produto entidade) {
+        entidade.setId(0);
+        entidade.setVersao(null);
+        Produto novo = super.cadastrar(entidade);
+        marcarAlteracao(novo.getId(), false);
+        publicar(ProdutoAlteradoEvent.Operacao.CRIADO, novo);
+        return novo;
+    }
+
+    @Override
+    @Transactional
+    @Caching(evict = {
+            @CacheEvict(cacheNames = CacheConfig.PRODUTOS, key = "#id"),
+            @CacheEvict(cacheNames = CacheConfig.PRODUTOS_LISTA, allEntries = true)
+    })
+    public Produto atualizar(Produto entidade, Integer id) {
+        Produto atual = em.find(Produto.class, id);
+        if (atual == null)
+            throw new IdNaoEncontradoException("ID NÃO ENCONTRADO");
+        // Sem versão informada a alteração vale sobre a versão atual; com versão, ela precisa ser a mais recente
+        if (entidade.getVersao() == null)
+            entidade.setVersao(atual.getVersao());
+        else if (!entidade.getVersao().equals(atual.getVersao()))
+            throw new ConflitoVersaoException("PRODUTO ALTERADO POR OUTRO USUÁRIO");
+        entidade.setId(id);
+        entidade.setSeqAlteracao(atual.getSeqAlteracao());
+        try {
+            Produto atualizado = em.merge(entidade);
+            em.flush();
+            marcarAlteracao(id, false);
+            publicar(ProdutoAlteradoEvent.Operacao.ATUALIZADO, atualizado);
+            return atualizado;
+        } catch (OptimisticLockException e) {
+            throw new ConflitoVersaoException("PRODUTO ALTERADO POR OUTRO USUÁRIO");
+        }
+    }
+
+    @Override
+    @Transactional
+    @Caching(evict = {
+            @CacheEvict(cacheNames = CacheConfig.PRODUTOS, key = "#id"),
+            @CacheEvict(cacheNames = CacheConfig.PRODUTOS_LISTA, allEntries = true)
+    })
+    public void atualizarParcial(Integer id, ProdutoPatch patch) {
+        StringBuilder jpql = new StringBuilder("UPDATE Produto p SET p.versao = p.versao + 1, p.atualizadoEm = :agora");
+        Map<String, Object> parametros = new HashMap<>();
+        parametros.put("agora", Instant.now());
+        if (patch.getNome() != null) {
+            jpql.append(", p.nome = :nome");
+            parametros.put("nome", patch.getNome());
+        }
+        if (patch.getTipo() != null) {
+            jpql.append(", p.tipo = :tipo");
+            parametros.put("tipo", patch.getTipo());
+        }
+        if (patch.getSetor() != null) {
+            jpql.append(", p.setor = :setor");
+            parametros.put("setor", patch.getSetor());
+        }
+        if (patch.getTamanho() != null) {
+            jpql.append(", p.tamanho = :tamanho");
+            parametros.put("tamanho", patch.getTamanho());
+        }
+        if (patch.getPreco() != null) {
+            jpql.append(", p.preco = :preco");
+            parametros.put("preco", patch.getPreco());
+        }
+        jpql.append(" WHERE p.id = :id");
+        parametros.put("id", id);
+        if (patch.getVersao() != null) {
+            jpql.append(" AND p.versao = :versao");
+            parametros.put("versao", patch.getVersao());
+        }
+
+        Query query = em.createQuery(jpql.toString());
+        parametros.forEach(query::setParameter);
+        if (query.executeUpdate() == 1) {
+            marcarAlteracao(id, false);
+            // O evento leva o produto já alterado, lido na mesma transação: os ouvintes não voltam ao banco depois
+            // do commit (onde uma remoção concorrente daria IdNaoEncontradoException a quem fez o PATCH).
+            // O UPDATE em massa não passa pelo contexto de persistência, então o refresh descarta uma cópia antiga
+            Produto atualizado = em.find(Produto.class, id);
+            em.refresh(atualizado);
+            publicar(ProdutoAlteradoEvent.Operacao.ATUALIZADO, atualizado);
+            return;
+        }
+
+        // Nenhuma linha alterada: ou o produto não existe ou a versão informada está desatualizada
+        Long existe = em.createQuery("SELECT COUNT(p) FROM Produto p WHERE p.id = :id", Long.class)
+                .setParameter("id", id)
+                .getSingleResult();
+        if (existe == 0)
+            throw new IdNaoEncontradoException("ID NÃO ENCONTRADO");
+        throw new ConflitoVersaoException("PRODUTO ALTERADO POR OUTRO USUÁRIO");
+    }
+
+    @Override
+    @Transactional
+    @Caching(evict = {
+            @CacheEvict(cacheNames = CacheConfig.PRODUTOS, key = "#id"),
+            @CacheEvict(cacheNames = CacheConfig.PRODUTOS_LISTA, allEntries = true)
+    })
+    public void remover(Integer id) {
+        Produto produto = super.buscar(id);
+        em.remove(produto);
+        em.persist(new ProdutoRemovido(id, 0, Instant.now()));
+        marcarAlteracao(id, true);
+        publicar(ProdutoAlteradoEvent.Operacao.REMOVIDO, produto);
+    }
+
+    @Override
+    @Transactional
+    @CacheEvict(cacheNames = CacheConfig.PRODUTOS_LISTA, allEntries = true)
+    public List<Produto> cadastrarLote(List<Produto> produtos) {
+        // O lote inteiro ocupa uma única posição da sequência de alterações
+        for (int i = 0; i < produtos.size(); i++) {
+            produtos.get(i).setVersao(null);
+            em.persist(produtos.get(i));
+            marcarAlteracao(produtos.get(i).getId(), false);
+            // Envia cada bloco ao banco e libera o contexto de persistência para não acumular entidades
+            if ((i + 1) % Produto.BLOCO_IDS == 0) {
+                em.flush();
+                em.clear();
+            }
+        }
+        em.flush();
+        em.clear();
+        produtos.forEach(produto -> publicar(ProdutoAlteradoEvent.Operacao.CRIADO, produto));
+        return produtos;
+    }
+
+    // A posição na sequência de alterações só é definida no fim da transação (beforeCommit): a linha do
+    // contador fica travada apenas entre esse ponto e o commit, então as escritas correm em paralelo e só
+    // a confirmação é serializada. Quem lê o contador continua enxergando todas as alterações até ele.
+    private void marcarAlteracao(Integer id, boolean removido) {
+        AlteracoesPendentes pendentes = (AlteracoesPendentes) TransactionSynchronizationManager.getResource(AlteracoesPendentes.class);
+        if (pendentes == null) {
+            pendentes = new AlteracoesPendentes();
+            TransactionSynchronizationManager.bindResource(AlteracoesPendentes.class, pendentes);
+            TransactionSynchronizationManager.registerSynchronization(pendentes);
+        }
+        (removido ? pendentes.removidos : pendentes.produtos).add(id);
+    }
+
+    private long proximaAlteracao() {
+        SequenciaAlteracao sequencia = em.find(SequenciaAlteracao.class, SequenciaAlteracao.ID, LockModeType.PESSIMISTIC_WRITE);
+        // Escrita antes do criarSequenciaAlteracao (banco vazio em desenvolvimento): a linha nasce aqui
+        if (sequencia == null) {
+            sequencia = new SequenciaAlteracao(SequenciaAlteracao.ID, 0, null);
+            em.persist(sequencia);
+        }
+        sequencia.setValor(sequencia.getValor() + 1);
+        sequencia.setAlteradoEm(Instant.now());
+        return sequencia.getValor();
+    }
+
+    // Produtos e remoções da transação atual que ainda esperam sua posição na sequência
+    private class AlteracoesPendentes implements TransactionSynchronization {
+        private final Set<Integer> produtos = new LinkedHashSet<>();
+        private final Set<Integer> removidos = new LinkedHashSet<>();
+
+        @Override
+        public void beforeCommit(boolean readOnly) {
+            em.flush();
+            long seq = proximaAlteracao();
+            gravarPosicao("Produto", produtos, seq);
+            gravarPosicao("ProdutoRemovido", removidos, seq);
+        }
+
+        @Override
+        public void afterCompletion(int status) {
+            TransactionSynchronizationManager.unbindResource(AlteracoesPendentes.class);
+        }
+
+        private void gravarPosicao(String entidade, Set<Integer> ids, long seq) {
+            List<Integer> lista = List.copyOf(ids);
+            for (int inicio = 0; inicio < lista.size(); inicio += BLOCO_POSICAO)
+                em.createQuery("UPDATE " + entidade + " e SET e.seqAlteracao = :seq WHERE e.id IN :ids")
+                        .setParameter("seq", seq)
+                        .setParameter("ids", lista.subList(inicio, Math.min(inicio + BLOCO_POSICAO, lista.size())))
+                        .executeUpdate();
+        }
+    }
+
+    private void publicar(ProdutoAlteradoEvent.Operacao operacao, Produto produto) {
+        publisher.publishEvent(new ProdutoAlteradoEvent(operacao, produto.getId(), produto));
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public void exportar(Consumer<Produto> consumidor) {
+        Session session = em.unwrap(Session.class);
+        int fetch = dialect() instanceof MySQLDialect ? FETCH_STREAMING_MYSQL : TAMANHO_FETCH;
+        try (ScrollableResults<Produto> resultados = session.createQuery("FROM Produto p ORDER BY p.id", Produto.class)
+                .setFetchSize(fetch)
+                .setReadOnly(true)
+                .scroll(ScrollMode.FORWARD_ONLY)) {
+            while (resultados.next()) {
+                Produto produto = resultados.get();
+                consumidor.accept(produto);
+                session.detach(produto);
+            }
+        }
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public AlteracoesProdutos alteracoes(Long desde, Integer apos, int limite) {
+        // O contador é lido antes dos produtos: o que tiver posição até ele já foi confirmado
+        SequenciaAlteracao sequencia = em.find(SequenciaAlteracao.class, SequenciaAlteracao.ID);
+        long ate = sequencia != null ? sequencia.getValor() : 0;
+        long inicio = desde != null ? desde : -1;
+
+        String cursor = apos != null
+                ? "(p.seqAlteracao > :desde OR (p.seqAlteracao = :desde AND p.id > :apos))"
+                : "p.seqAlteracao > :desde";
+        TypedQuery<Produto> query = em.createQuery("FROM Produto p WHERE " + cursor
+                        + " AND p.seqAlteracao <= :ate ORDER BY p.seqAlteracao, p.id", Produto.class)
+                .setParameter("desde", inicio)
+                .setParameter("ate", ate)
+                .setMaxResults(limite)
+                .setHint(HibernateHints.HINT_READ_ONLY, true);
+        if (apos != null)
+            query.setParameter("apos", apos);
+        List<Produto> alterados = query.getResultList();
+
+        // Página cheia: a próxima chamada continua do último produto entregue
+        boolean mais = alterados.size() == limite;
+        if (mais)
+            ate = alterados.get(alterados.size() - 1).getSeqAlteracao();
+
+        // Quem ainda não tem nada não precisa saber o que foi removido
+        List<Integer> removidos = desde == null ? List.of() : em.createQuery(
+                        "SELECT r.id FROM ProdutoRemovido r WHERE r.seqAlteracao > :desde AND r.seqAlteracao <= :ate"
+                                + " ORDER BY r.seqAlteracao", Integer.class)
+                .setParameter("desde", inicio)
+                .setParameter("ate", ate)
+                .getResultList();
+        return new AlteracoesProdutos(desde, ate, mais, alterados, removidos);
+    }
+
+    @Override
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public SequenciaAlteracao sequenciaAlteracao() {
+        return em.find(SequenciaAlteracao.class, SequenciaAlteracao.ID);
+    }
+
+    // A linha do contador de alterações vem da migração V2; em desenvolvimento (ddl-auto) é criada aqui.
+    // Chamado pelo MigracoesConfig antes de o servidor web subir
+    @Transactional
+    public void criarSequenciaAlteracao() {
+        if (em.find(SequenciaAlteracao.class, SequenciaAlteracao.ID) == null)
+            em.persist(new SequenciaAlteracao(SequenciaAlteracao.ID, 0, null));
+    }
+
+    private Dialect dialect() {
+        return em.getEntityManagerFactory().unwrap(SessionFactoryImplementor.class).getJdbcServices().getDialect();
+    }
+
+    // Bancos sem sequência nativa (MySQL) usam a tabela CM_SQ_PRODUTO; ela precisa começar
+    // depois dos IDs já gravados quando a tabela de produtos veio da estratégia IDENTITY.
+    // Chamado pelo MigracoesConfig antes de o servidor web subir, para nenhum cadastro receber um ID já usado
+    @Transactional
+    public void ajustarSequencia() {
+        if (dialect().getSequenceSupport().supportsSequences())
+            return;
+
+        Integer maiorId = em.createQuery("SELECT MAX(p.id) FROM Produto p", Integer.class).getSingleResult();
+        if (maiorId == null)
+            return;
+        long proximo = (long) maiorId + Produto.BLOCO_IDS + 1;
+        em.createNativeQuery("UPDATE CM_SQ_PRODUTO SET next_val = :proximo WHERE next_val < :proximo")
+                .setParameter("proximo", proximo)
+                .executeUpdate();
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public List<Produto> buscar(ProdutoFiltro filtro, BigDecimal precoApos, Integer apos, int limite) {
+        // Só entram na consulta os critérios informados, para que o banco use o índice composto adequado
+        StringBuilder jpql = new StringBuilder("FROM Produto p WHERE 1 = 1");
+        Map<String, Object> parametros = new HashMap<>();
+
+        if (filtro.getSetor() != null) {
+            jpql.append(" AND p.setor = :setor");
+            parametros.put("setor", filtro.getSetor());
+        }
+        if (filtro.getTipo() != null && !filtro.getTipo().isBlank()) {
+            jpql.append(" AND p.tipo = :tipo");
+            parametros.put("tipo", filtro.getTipo());
+        }
+        if (filtro.getTamanho() != null && !filtro.getTamanho().isBlank()) {
+            jpql.append(" AND p.tamanho = :tamanho");
+            parametros.put("tamanho", filtro.getTamanho());
+        }
+        if (filtro.getPrecoMin() != null) {
+            jpql.append(" AND p.preco >= :precoMin");
+            parametros.put("precoMin", filtro.getPrecoMin());
+        }
+        if (filtro.getPrecoMax() != null) {
+            jpql.append(" AND p.preco <= :precoMax");
+            parametros.put("precoMax", filtro.getPrecoMax());
+        }
+        if (filtro.isOrdenadoPorPreco()) {
+            // Cursor (preço, ID); o "preco >= :precoApos" a mais dá ao banco o início da leitura no índice
+            if (apos != null && precoApos != null) {
+                jpql.append(" AND p.preco >= :precoApos AND (p.preco > :precoApos OR (p.preco = :precoApos AND p.id > :apos))");
+                parametros.put("precoApos", precoApos);
+                parametros.put("apos", apos);
+            }
+        } else if (apos != null) {
+            jpql.append(" AND p.id > :apos");
+            parametros.put("apos", apos);
+        }
+        jpql.append(" ORDER BY ").append(ordemBusca(filtro)).append("p.id");
+
+        TypedQuery<Produto> query = em.createQuery(jpql.toString(), Produto.class)
+                .setMaxResults(limite)
+                .setHint(HibernateHints.HINT_READ_ONLY, true);
+        parametros.forEach(query::setParameter);
+        return query.getResultList();
+    }
+
+    // Colunas filtradas por igualdade são constantes no resultado, então ordenar por elas antes do ID não muda
+    // a ordem; com isso o banco lê a página na ordem do índice (filtros..., ID) em vez de ordenar tudo que casou.
+    // Faixa de preço (sem tipo/tamanho): ordem do índice (SETOR, PRECO, ID) ou (PRECO, ID), que lê só a faixa;
+    // em ordem de ID o banco percorreria a chave primária testando o preço linha a linha
+    private static String ordemBusca(ProdutoFiltro filtro) {
+        boolean setor = filtro.getSetor() != null;
+        boolean tipo = filtro.getTipo() != null && !filtro.getTipo().isBlank();
+        boolean tamanho = filtro.getTamanho() != null && !filtro.getTamanho().isBlank();
+        if (filtro.isOrdenadoPorPreco())
+            return setor ? "p.setor, p.preco, " : "p.preco, ";
+        if (setor && tipo && tamanho)
+            return "p.setor, p.tipo, p.tamanho, ";
+        if (tipo && tamanho && !setor)
+            return "p.tipo, p.tamanho, ";
+        if (setor)
+            return "p.setor, ";
+        if (tipo)
+            return "p.tipo, ";
+        if (tamanho)
+            return "p.tamanho, ";
+        return "";
     }
 }
@@ -2,7 +2,8 @@ package br.com.fiap.calmarket.dao;
 
 import br.com.fiap.calmarket.model.Usuario;
 import org.springframework.stereotype.Repository;
-import jakarta.persistence.NoResultException;
+
+import java.util.List;
 
 
 @Repository
@@ -13,13 +14,12 @@ public class UsuarioDaoImpl extends GenericDaoImpl<Usuario, Integer> implements
 
     @Override
     public Usuario findByEmail(String email) {
-        try {
-            return em.createQuery("SELECT u FROM Usuario u WHERE u.email = :email", Usuario.class)
-                    .setParameter("email", email)
-                    .getSingleResult();
-        } catch (NoResultException e) {
-            return null;
-        }
+        // setMaxResults evita NonUniqueResultException em bases que ainda tenham e-mails repetidos
+        List<Usuario> usuarios = em.createQuery("SELECT u FROM Usuario u WHERE u.email = :email", Usuario.class)
+                .setParameter("email", email)
+                .setMaxResults(1)
+                .getResultList();
+        return usuarios.isEmpty() ? null : usuarios.get(0);
     }
 
 }
@@ -0,0 +1,20 @@
+package br.com.fiap.calmarket.dto;
+
+import br.com.fiap.calmarket.model.Produto;
+import lombok.*;
+
+import java.util.List;
+
+// Resposta da sincronização incremental: produtos criados ou alterados e IDs removidos depois de "desde".
+// "ate" é a posição a enviar como desde na próxima chamada; com "mais", a página encheu e ainda há alterações
+@Getter
+@ToString
+@AllArgsConstructor
+public class AlteracoesProdutos {
+
+    private Long desde;
+    private long ate;
+    private boolean mais;
+    private List<Produto> alterados;
+    private List<Integer> removidos;
+}
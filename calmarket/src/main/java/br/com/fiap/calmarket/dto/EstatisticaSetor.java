@@ -0,0 +1,19 @@
+package br.com.fiap.calmarket.dto;
+
+import br.com.fiap.calmarket.model.Setor;
+import lombok.*;
+
+import java.math.BigDecimal;
+
+// Quantidade e preços mínimo, máximo e médio dos produtos de um setor
+@Getter
+@ToString
+@AllArgsConstructor
+public class EstatisticaSetor {
+
+    private Setor setor;
+    private long quantidade;
+    private BigDecimal precoMinimo;
+    private BigDecimal precoMaximo;
+    private BigDecimal precoMedio;
+}
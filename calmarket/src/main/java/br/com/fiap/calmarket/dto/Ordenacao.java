@@ -0,0 +1,68 @@
+package br.com.fiap.calmarket.dto;
+
+
+import java.math.BigDecimal;
+import java.util.function.Function;
+
+// Ordenações da listagem de produtos (?sort=nome, ?sort=-preco ...).
+// A paginação é por cursor na coluna ordenada + ID, então cada uma tem um índice (COLUNA, ID).
+public enum Ordenacao {
+    ID("id", true, ProdutoResumo::getId),
+    NOME("nome", true, ProdutoResumo::getNome),
+    NOME_DESC("nome", false, ProdutoResumo::getNome),
+    PRECO("preco", true, ProdutoResumo::getPreco),
+    PRECO_DESC("preco", false, ProdutoResumo::getPreco);
+
+    private final String atributo;
+    private final boolean crescente;
+    private final Function<ProdutoResumo, Object> valor;
+
+    Ordenacao(String atributo, boolean crescente, Function<ProdutoResumo, Object> valor) {
+        this.atributo = atributo;
+        this.crescente = crescente;
+        this.valor = valor;
+    }
+
+    // "nome" -> NOME, "-preco" -> PRECO_DESC; vazio ou desconhecido -> ID
+    public static Ordenacao de(String sort) {
+        if (sort == null || sort.isBlank())
+            return ID;
+        for (Ordenacao ordenacao : values())
+            if (ordenacao.parametro().equalsIgnoreCase(sort.trim()))
+                return ordenacao;
+        return ID;
+    }
+
+    public String parametro() {
+        return crescente ? atributo : "-" + atributo;
+    }
+
+    public String getAtributo() {
+        return atributo;
+    }
+
+    public boolean isCrescente() {
+        return crescente;
+    }
+
+    // Valor da coluna ordenada no último produto da página, enviado como cursor (?valor=)
+    public String valor(ProdutoResumo produto) {
+        Object v = valor.apply(produto);
+        return v instanceof BigDecimal decimal ? decimal.toPlainString() : String.valueOf(v);
+    }
+
+    // Cursor recebido convertido para o tipo da coluna; null se inválido
+    public Object converter(String valor) {
+        if (valor == null)
+            return null;
+        try {
+            return switch (atributo) {
+                case "preco" -> new BigDecimal(valor);
+                case "id" -> Integer.valueOf(valor);
+                default -> valor;
+            };
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,28 @@
+package br.com.fiap.calmarket.dto;
+
+import br.com.fiap.calmarket.model.Setor;
+import lombok.*;
+
+import java.math.BigDecimal;
+
+// Critérios opcionais da busca de produtos (/produtos/busca)
+@Getter
+@Setter
+@ToString
+@AllArgsConstructor
+@NoArgsConstructor
+public class ProdutoFiltro {
+
+    private Setor setor;
+    private String tipo;
+    private String tamanho;
+    private BigDecimal precoMin;
+    private BigDecimal precoMax;
+
+    // Faixa de preço sem tipo nem tamanho: o resultado vem em ordem de preço (índices (SETOR, PRECO, ID) e (PRECO, ID)),
+    // e o cursor da próxima página leva o preço do último produto além do ID
+    public boolean isOrdenadoPorPreco() {
+        return (precoMin != null || precoMax != null)
+                && (tipo == null || tipo.isBlank()) && (tamanho == null || tamanho.isBlank());
+    }
+}
@@ -0,0 +1,39 @@
+package br.com.fiap.calmarket.dto;
+
+import br.com.fiap.calmarket.model.Setor;
+import jakarta.validation.constraints.DecimalMin;
+import jakarta.validation.constraints.Pattern;
+import lombok.*;
+
+import java.math.BigDecimal;
+
+// Campos de uma atualização parcial (PATCH); campos nulos não são alterados
+@Getter
+@Setter
+@ToString
+@AllArgsConstructor
+@NoArgsConstructor
+public class ProdutoPatch {
+
+    @Pattern(regexp = ".*\\S.*", message = "Campo de 'NOME' não pode ficar em branco")
+    private String nome;
+
+    @Pattern(regexp = ".*\\S.*", message = "Campo de 'TIPO' não pode ficar em branco")
+    private String tipo;
+
+    private Setor setor;
+
+    @Pattern(regexp = ".*\\S.*", message = "Campo de 'TAMANHO' não pode ficar em branco")
+    private String tamanho;
+
+    @DecimalMin(value = "0.0", inclusive = false, message = "O preço deve ser maior que zero")
+    private BigDecimal preco;
+
+    // Versão conhecida pelo cliente; se informada, a alteração só é aplicada sobre essa versão
+    private Long versao;
+
+    // Sem nenhum campo a alterar o PATCH só mudaria versão, data e posição na sequência de alterações
+    public boolean semAlteracoes() {
+        return nome == null && tipo == null && setor == null && tamanho == null && preco == null;
+    }
+}
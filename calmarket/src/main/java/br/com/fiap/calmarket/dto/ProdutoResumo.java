@@ -0,0 +1,18 @@
+package br.com.fiap.calmarket.dto;
+
+import br.com.fiap.calmarket.model.Setor;
+import lombok.*;
+
+import java.math.BigDecimal;
+
+// Linha da tabela de produtos: só as colunas exibidas, lidas por projeção (sem entidade gerenciada)
+@Getter
+@ToString
+@AllArgsConstructor
+public class ProdutoResumo {
+
+    private int id;
+    private String nome;
+    private Setor setor;
+    private BigDecimal preco;
+}
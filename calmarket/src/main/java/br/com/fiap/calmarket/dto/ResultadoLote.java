@@ -0,0 +1,30 @@
+package br.com.fiap.calmarket.dto;
+
+import lombok.*;
+
+import java.util.ArrayList;
+import java.util.List;
+
+// Resumo de uma importação em lote: quantos itens foram lidos, gravados e os erros por item
+@Getter
+@Setter
+@ToString
+@NoArgsConstructor
+public class ResultadoLote {
+
+    private int total;
+    private int inseridos;
+    private List<ErroItem> erros = new ArrayList<>();
+
+    public void adicionarErro(int indice, List<String> mensagens) {
+        erros.add(new ErroItem(indice, mensagens));
+    }
+
+    @Getter
+    @ToString
+    @AllArgsConstructor
+    public static class ErroItem {
+        private int indice;
+        private List<String> mensagens;
+    }
+}
@@ -0,0 +1,14 @@
+package br.com.fiap.calmarket.dto;
+
+import lombok.*;
+
+// Item retornado pelo autocomplete (/produtos/sugestoes)
+@Getter
+@ToString
+@AllArgsConstructor
+public class Sugestao {
+
+    private int id;
+    private String nome;
+    private String tipo;
+}
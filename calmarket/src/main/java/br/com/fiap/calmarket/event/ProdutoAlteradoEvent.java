@@ -0,0 +1,21 @@
+package br.com.fiap.calmarket.event;
+
+import br.com.fiap.calmarket.model.Produto;
+import lombok.*;
+
+// Publicado pelo ProdutoDaoImpl a cada escrita; os ouvintes reagem depois do commit
+@Getter
+@ToString
+@AllArgsConstructor
+public class ProdutoAlteradoEvent {
+
+    public enum Operacao {
+        CRIADO, ATUALIZADO, REMOVIDO
+    }
+
+    private final Operacao operacao;
+    private final int id;
+
+    // Estado do produto após a operação (ou o removido), lido dentro da transação
+    private final Produto produto;
+}
@@ -0,0 +1,11 @@
+package br.com.fiap.calmarket.Exception;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+@ResponseStatus(HttpStatus.CONFLICT)
+public class ConflitoVersaoException extends RuntimeException {
+    public ConflitoVersaoException(String message) {
+        super(message);
+    }
+}
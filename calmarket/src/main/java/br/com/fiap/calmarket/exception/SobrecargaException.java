@@ -0,0 +1,23 @@
+package br.com.fiap.calmarket.Exception;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ProblemDetail;
+import org.springframework.web.ErrorResponseException;
+
+// 503 com Retry-After: o cliente tenta de novo mais tarde em vez de a requisição esperar na fila.
+// Como ErrorResponse, o Spring MVC copia os cabeçalhos e responde pelo sendError, igual ao @ResponseStatus.
+public class SobrecargaException extends ErrorResponseException {
+
+    private static final long RETRY_AFTER_SEGUNDOS = 1;
+
+    public SobrecargaException(String message) {
+        super(HttpStatus.SERVICE_UNAVAILABLE, ProblemDetail.forStatusAndDetail(HttpStatus.SERVICE_UNAVAILABLE, message), null);
+        getHeaders().set(HttpHeaders.RETRY_AFTER, String.valueOf(RETRY_AFTER_SEGUNDOS));
+    }
+
+    @Override
+    public String getMessage() {
+        return getBody().getDetail();
+    }
+}
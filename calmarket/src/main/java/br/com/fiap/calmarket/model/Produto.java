@@ -1,11 +1,14 @@
 package br.com.fiap.calmarket.model;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import jakarta.persistence.*;
 import jakarta.validation.constraints.DecimalMin;
 import jakarta.validation.constraints.NotBlank;
 import lombok.*;
+import org.hibernate.annotations.UpdateTimestamp;
 
 import java.math.BigDecimal;
+import java.time.Instant;
 
 @Getter
 @Setter
@@ -13,12 +16,31 @@ import java.math.BigDecimal;
 @AllArgsConstructor
 @NoArgsConstructor
 @Entity
-@Table(name = "CM_TB_PRODUTO")
+@Table(name = "CM_TB_PRODUTO", indexes = {
+        // Busca por filtros (ProdutoDao.buscar): cada índice termina em ID, a ordem do cursor, então a página
+        // é lida em sequência a partir do último ID, sem varrer nem ordenar a faixa inteira
+        @Index(name = "IDX_PRODUTO_SETOR_TIPO_TAMANHO_ID", columnList = "SETOR, TIPO, TAMANHO, ID"),
+        @Index(name = "IDX_PRODUTO_TIPO_TAMANHO_ID", columnList = "TIPO, TAMANHO, ID"),
+        @Index(name = "IDX_PRODUTO_SETOR_ID", columnList = "SETOR, ID"),
+        @Index(name = "IDX_PRODUTO_TIPO_ID", columnList = "TIPO, ID"),
+        @Index(name = "IDX_PRODUTO_TAMANHO_ID", columnList = "TAMANHO, ID"),
+        // Faixa de preço, com ou sem setor, paginada por (preço, ID); sem setor usa o IDX_PRODUTO_PRECO_ID abaixo
+        @Index(name = "IDX_PRODUTO_SETOR_PRECO_ID", columnList = "SETOR, PRECO, ID"),
+        // Listagem ordenada da tela de produtos, paginada por (coluna, ID)
+        @Index(name = "IDX_PRODUTO_NOME_ID", columnList = "NOME, ID"),
+        @Index(name = "IDX_PRODUTO_PRECO_ID", columnList = "PRECO, ID"),
+        // Sincronização incremental (/produtos/alteracoes), paginada por (sequência, ID)
+        @Index(name = "IDX_PRODUTO_SEQ_ALTERACAO_ID", columnList = "SEQ_ALTERACAO, ID")
+})
 public class Produto {
 
+    public static final int BLOCO_IDS = 50;
+
     @Id
     @Column(name = "ID", unique = true, nullable = false)
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    // Sequência com blocos de IDs alocados em memória, o que permite ao Hibernate agrupar INSERTs em lote
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "SQ_PRODUTO")
+    @SequenceGenerator(name = "SQ_PRODUTO", sequenceName = "CM_SQ_PRODUTO", allocationSize = Produto.BLOCO_IDS)
     private int id;
 
     @Column(name = "NOME", nullable = false)
@@ -40,4 +62,19 @@ public class Produto {
     @Column(name = "PRECO", nullable = false, precision = 10, scale = 2)
     @DecimalMin(value = "0.0", inclusive = false, message = "O preço deve ser maior que zero")
     private BigDecimal preco;
+
+    // Controle de concorrência otimista: cada alteração incrementa a versão
+    @Version
+    @Column(name = "VERSAO", nullable = false)
+    private Long versao;
+
+    // Data da última alteração, enviada como Last-Modified
+    @UpdateTimestamp
+    @Column(name = "ATUALIZADO_EM")
+    private Instant atualizadoEm;
+
+    // Posição da última alteração na SequenciaAlteracao; definida pelo DAO, nunca pelo cliente
+    @JsonIgnore
+    @Column(name = "SEQ_ALTERACAO", nullable = false)
+    private long seqAlteracao;
 }
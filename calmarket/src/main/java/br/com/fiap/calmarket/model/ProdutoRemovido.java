@@ -0,0 +1,28 @@
+package br.com.fiap.calmarket.model;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.Instant;
+
+// Registro de produto removido, para que a sincronização incremental (/produtos/alteracoes) avise os clientes
+@Getter
+@Setter
+@AllArgsConstructor
+@NoArgsConstructor
+@Entity
+@Table(name = "CM_TB_PRODUTO_REMOVIDO", indexes = {
+        @Index(name = "IDX_PRODUTO_REMOVIDO_SEQ", columnList = "SEQ_ALTERACAO")
+})
+public class ProdutoRemovido {
+
+    @Id
+    @Column(name = "ID")
+    private int id;
+
+    @Column(name = "SEQ_ALTERACAO", nullable = false)
+    private long seqAlteracao;
+
+    @Column(name = "REMOVIDO_EM", nullable = false)
+    private Instant removidoEm;
+}
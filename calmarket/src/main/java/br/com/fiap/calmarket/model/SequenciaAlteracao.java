@@ -0,0 +1,30 @@
+package br.com.fiap.calmarket.model;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.Instant;
+
+// Contador único das alterações do catálogo (linha ID = 1). Cada transação de escrita trava a linha só ao
+// confirmar (beforeCommit), incrementa o valor e a libera no commit, então as alterações ficam visíveis na ordem da sequência
+@Getter
+@Setter
+@AllArgsConstructor
+@NoArgsConstructor
+@Entity
+@Table(name = "CM_TB_SEQ_ALTERACAO")
+public class SequenciaAlteracao {
+
+    public static final int ID = 1;
+
+    @Id
+    @Column(name = "ID")
+    private int id;
+
+    @Column(name = "VALOR", nullable = false)
+    private long valor;
+
+    // Horário do último commit que avançou o contador (Last-Modified das listagens)
+    @Column(name = "ALTERADO_EM")
+    private Instant alteradoEm;
+}
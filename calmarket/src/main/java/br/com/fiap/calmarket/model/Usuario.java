@@ -8,7 +8,10 @@ import lombok.*;
 @AllArgsConstructor
 @NoArgsConstructor
 @Entity
-@Table(name = "TDS_USERS_MERCADO")
+@Table(name = "TDS_USERS_MERCADO", uniqueConstraints = {
+        // Índice único usado pelo login (UsuarioDao.findByEmail) e que impede e-mails duplicados
+        @UniqueConstraint(name = "UK_USUARIO_EMAIL", columnNames = "email")
+})
 public class Usuario {
 
     @Id
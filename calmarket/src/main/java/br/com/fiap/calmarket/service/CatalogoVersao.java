@@ -0,0 +1,68 @@
+package br.com.fiap.calmarket.service;
+
+import br.com.fiap.calmarket.dao.ProdutoDao;
+import br.com.fiap.calmarket.event.ProdutoAlteradoEvent;
+import br.com.fiap.calmarket.model.SequenciaAlteracao;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Versão do catálogo inteiro, usada como ETag das listagens e como parte da chave do cache de páginas.
+// Vem do contador de alterações gravado no banco (SequenciaAlteracao), então é a mesma em todas as instâncias
+// e depois de reinícios. O valor lido fica guardado por calmarket.catalogo.intervalo-versao; uma escrita
+// desta instância o descarta logo depois do commit, e as de outras instâncias aparecem no máximo nesse intervalo.
+@Component
+public class CatalogoVersao {
+
+    private record Estado(long versao, long alteradoEm, long geracao, long lidoEm) {
+    }
+
+    private final ProdutoDao produtoDao;
+    private final long intervalo;
+    // Avança a cada commit local: um valor lido antes dele não é mais reaproveitado
+    private final AtomicLong geracao = new AtomicLong();
+    private volatile Estado estado;
+
+    public CatalogoVersao(ProdutoDao produtoDao, @Value("${calmarket.catalogo.intervalo-versao}") Duration intervalo) {
+        this.produtoDao = produtoDao;
+        this.intervalo = intervalo.toNanos();
+    }
+
+    public long atual() {
+        return estado().versao();
+    }
+
+    // -1 antes da primeira alteração: sem Last-Modified, só o ETag
+    public long alteradoEm() {
+        return estado().alteradoEm();
+    }
+
+    // ETag fraco: a mesma versão vale para JSON, CBOR e Smile, com ou sem gzip
+    // (o Tomcat não comprime respostas com ETag forte)
+    public String etag() {
+        return "W/\"" + estado().versao() + "\"";
+    }
+
+    @TransactionalEventListener
+    public void aoAlterar(ProdutoAlteradoEvent evento) {
+        geracao.incrementAndGet();
+    }
+
+    private Estado estado() {
+        Estado atual = estado;
+        if (atual != null && atual.geracao() == geracao.get() && System.nanoTime() - atual.lidoEm() < intervalo)
+            return atual;
+        long lidaEm = geracao.get();
+        long agora = System.nanoTime();
+        SequenciaAlteracao sequencia = produtoDao.sequenciaAlteracao();
+        atual = sequencia == null
+                ? new Estado(0, -1, lidaEm, agora)
+                : new Estado(sequencia.getValor(),
+                sequencia.getAlteradoEm() != null ? sequencia.getAlteradoEm().toEpochMilli() : -1, lidaEm, agora);
+        estado = atual;
+        return atual;
+    }
+}
@@ -0,0 +1,128 @@
+package br.com.fiap.calmarket.service;
+
+import br.com.fiap.calmarket.Exception.SobrecargaException;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// BCrypt executado em um pool próprio e limitado: picos de cadastro/login não ocupam todas as threads do Tomcat.
+// Com a fila cheia a requisição é recusada na hora (503) em vez de esperar.
+// O pool também tem uma cota de CPU (fração dos processadores da máquina): a thread de hash nunca bloqueia, então sem
+// cota ela pega o núcleo toda vez que as threads do catálogo esperam I/O. Depois de cada hash a thread descansa o
+// suficiente para não passar da sua parte da cota.
+public class CodificadorSenha implements PasswordEncoder {
+
+    private static final int CUSTO_MINIMO = 10;
+    private static final int CUSTO_MAXIMO = 16;
+
+    private final BCryptPasswordEncoder bcrypt;
+    private final ThreadPoolExecutor executor;
+    private final long esperaMs;
+    private final double cotaPorThread;
+
+    public CodificadorSenha(int custo, int threads, int fila, long esperaMs, double cotaCpu) {
+        if (cotaCpu <= 0)
+            throw new IllegalStateException("calmarket.senha.cota-cpu precisa ser maior que zero");
+        this.bcrypt = new BCryptPasswordEncoder(custo);
+        this.esperaMs = esperaMs;
+        this.cotaPorThread = Math.min(1, cotaCpu * Runtime.getRuntime().availableProcessors() / threads);
+        AtomicInteger contador = new AtomicInteger();
+        ThreadLocal<Long> inicio = new ThreadLocal<>();
+        this.executor = new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(fila),
+                tarefa -> {
+                    Thread thread = new Thread(tarefa, "hash-senha-" + contador.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                new ThreadPoolExecutor.AbortPolicy()) {
+
+            @Override
+            protected void beforeExecute(Thread thread, Runnable tarefa) {
+                inicio.set(tempoCpu());
+            }
+
+            // Roda depois de o Future receber o resultado: quem pediu o hash não espera o descanso
+            @Override
+            protected void afterExecute(Runnable tarefa, Throwable erro) {
+                descansar(tempoCpu() - inicio.get());
+            }
+        };
+    }
+
+    public double cotaPorThread() {
+        return cotaPorThread;
+    }
+
+    // Escolhe o custo cujo tempo de hash mais se aproxima do alvo nesta máquina (cada +1 dobra o tempo)
+    public static int calibrar(long alvoMs) {
+        BCryptPasswordEncoder referencia = new BCryptPasswordEncoder(8);
+        referencia.encode("aquecimento");
+        long inicio = System.nanoTime();
+        for (int i = 0; i < 3; i++)
+            referencia.encode("calibracao");
+        double tempoCusto8 = (System.nanoTime() - inicio) / 3 / 1_000_000.0;
+
+        int custo = 8 + (int) Math.round(Math.log(alvoMs / Math.max(tempoCusto8, 0.1)) / Math.log(2));
+        return Math.max(CUSTO_MINIMO, Math.min(CUSTO_MAXIMO, custo));
+    }
+
+    @Override
+    public String encode(CharSequence senha) {
+        return executar(() -> bcrypt.encode(senha));
+    }
+
+    @Override
+    public boolean matches(CharSequence senha, String hash) {
+        return executar(() -> bcrypt.matches(senha, hash));
+    }
+
+    // Hashes gravados com custo menor que o atual são refeitos no próximo login bem-sucedido
+    @Override
+    public boolean upgradeEncoding(String hash) {
+        return bcrypt.upgradeEncoding(hash);
+    }
+
+    // Com cota c, cada nanossegundo de CPU do hash pede (1 - c) / c de pausa
+    private void descansar(long cpuNanos) {
+        if (cotaPorThread >= 1)
+            return;
+        try {
+            TimeUnit.NANOSECONDS.sleep((long) (cpuNanos * (1 - cotaPorThread) / cotaPorThread));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    // Tempo de CPU da thread (o tempo de parede contaria também a espera pelo núcleo)
+    private static long tempoCpu() {
+        ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        return threads.isCurrentThreadCpuTimeSupported() ? threads.getCurrentThreadCpuTime() : System.nanoTime();
+    }
+
+    private <T> T executar(Callable<T> tarefa) {
+        Future<T> futuro;
+        try {
+            futuro = executor.submit(tarefa);
+        } catch (RejectedExecutionException e) {
+            throw new SobrecargaException("SERVIÇO DE SENHAS SOBRECARREGADO");
+        }
+        try {
+            return futuro.get(esperaMs, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            futuro.cancel(true);
+            throw new SobrecargaException("SERVIÇO DE SENHAS SOBRECARREGADO");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SobrecargaException("SERVIÇO DE SENHAS INTERROMPIDO");
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException erro)
+                throw erro;
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+}
@@ -0,0 +1,145 @@
+package br.com.fiap.calmarket.service;
+
+import br.com.fiap.calmarket.Exception.SobrecargaException;
+import br.com.fiap.calmarket.dao.ProdutoDao;
+import br.com.fiap.calmarket.dto.EstatisticaSetor;
+import br.com.fiap.calmarket.event.ProdutoAlteradoEvent;
+import br.com.fiap.calmarket.model.Produto;
+import br.com.fiap.calmarket.model.Setor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Async;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+// Estatísticas de preço por setor, carregadas uma vez e depois mantidas a partir das escritas.
+// Contagem e soma usam LongAdder; mínimo e máximo vêm de um mapa ordenado preço -> quantidade.
+@Component
+public class EstatisticasCatalogo {
+
+    private static final Logger log = LoggerFactory.getLogger(EstatisticasCatalogo.class);
+
+    private final ProdutoDao produtoDao;
+    private final Map<Setor, Acumulador> setores = new EnumMap<>(Setor.class);
+    // ID -> setor/preço contabilizados, para desfazer a contribuição antiga em alterações e remoções
+    private final ConcurrentHashMap<Integer, Registro> registros = new ConcurrentHashMap<>();
+    private volatile boolean carregando;
+    private volatile boolean pronto;
+
+    private record Registro(Setor setor, long centavos, long versao) {
+    }
+
+    private static class Acumulador {
+        final LongAdder quantidade = new LongAdder();
+        final LongAdder somaCentavos = new LongAdder();
+        final ConcurrentSkipListMap<Long, Long> precos = new ConcurrentSkipListMap<>();
+
+        void somar(long centavos) {
+            quantidade.increment();
+            somaCentavos.add(centavos);
+            precos.merge(centavos, 1L, Long::sum);
+        }
+
+        void subtrair(long centavos) {
+            quantidade.decrement();
+            somaCentavos.add(-centavos);
+            precos.computeIfPresent(centavos, (preco, total) -> total == 1 ? null : total - 1);
+        }
+    }
+
+    public EstatisticasCatalogo(ProdutoDao produtoDao) {
+        this.produtoDao = produtoDao;
+        for (Setor setor : Setor.values())
+            setores.put(setor, new Acumulador());
+    }
+
+    // Roda em segundo plano depois que a aplicação está pronta: a varredura da tabela não atrasa a subida,
+    // e até terminar o endpoint responde 503 (pronto()) em vez de números parciais
+    @Async
+    @EventListener(ApplicationReadyEvent.class)
+    public void carregar() {
+        long inicio = System.nanoTime();
+        carregando = true;
+        try {
+            while (true) {
+                try {
+                    produtoDao.exportar(this::registrar);
+                    break;
+                } catch (SobrecargaException e) {
+                    // Permissões de exportação do bulkhead ocupadas: nada foi lido, tenta de novo
+                    try {
+                        TimeUnit.SECONDS.sleep(1);
+                    } catch (InterruptedException interrompida) {
+                        Thread.currentThread().interrupt();
+                        throw e;
+                    }
+                }
+            }
+        } finally {
+            carregando = false;
+            registros.values().removeIf(registro -> registro.setor() == null);
+        }
+        pronto = true;
+        log.info("Estatísticas do catálogo carregadas: {} produtos em {} ms", registros.size(),
+                TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - inicio));
+    }
+
+    public boolean pronto() {
+        return pronto;
+    }
+
+    @TransactionalEventListener
+    public void aoAlterar(ProdutoAlteradoEvent evento) {
+        if (evento.getOperacao() == ProdutoAlteradoEvent.Operacao.REMOVIDO) {
+            // Durante a carga inicial a remoção fica marcada com versão máxima, para que a carga não volte a contar o produto
+            registros.compute(evento.getId(), (id, antigo) -> {
+                if (antigo != null && antigo.setor() != null)
+                    setores.get(antigo.setor()).subtrair(antigo.centavos());
+                return carregando ? new Registro(null, 0, Long.MAX_VALUE) : null;
+            });
+            return;
+        }
+        registrar(evento.getProduto());
+    }
+
+    private void registrar(Produto produto) {
+        long versao = produto.getVersao() != null ? produto.getVersao() : 0;
+        long centavos = produto.getPreco().setScale(2, RoundingMode.HALF_UP).unscaledValue().longValueExact();
+        registros.compute(produto.getId(), (id, antigo) -> {
+            if (antigo != null && antigo.versao() > versao)
+                return antigo; // já contabilizado com dados mais novos
+            if (antigo != null && antigo.setor() != null)
+                setores.get(antigo.setor()).subtrair(antigo.centavos());
+            setores.get(produto.getSetor()).somar(centavos);
+            return new Registro(produto.getSetor(), centavos, versao);
+        });
+    }
+
+    // Custo proporcional ao número de setores, independente do tamanho do catálogo
+    public List<EstatisticaSetor> porSetor() {
+        List<EstatisticaSetor> resultado = new ArrayList<>(setores.size());
+        setores.forEach((setor, acumulador) -> {
+            long quantidade = acumulador.quantidade.sum();
+            Map.Entry<Long, Long> minimo = acumulador.precos.firstEntry();
+            Map.Entry<Long, Long> maximo = acumulador.precos.lastEntry();
+            BigDecimal medio = quantidade == 0 ? null
+                    : BigDecimal.valueOf(acumulador.somaCentavos.sum(), 2)
+                    .divide(BigDecimal.valueOf(quantidade), 2, RoundingMode.HALF_UP);
+            resultado.add(new EstatisticaSetor(setor, quantidade,
+                    minimo != null ? BigDecimal.valueOf(minimo.getKey(), 2) : null,
+                    maximo != null ? BigDecimal.valueOf(maximo.getKey(), 2) : null,
+                    medio));
+        });
+        return resultado;
+    }
+}
@@ -0,0 +1,275 @@
+package br.com.fiap.calmarket.service;
+
+import br.com.fiap.calmarket.Exception.SobrecargaException;
+import br.com.fiap.calmarket.event.ProdutoAlteradoEvent;
+import br.com.fiap.calmarket.model.Produto;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Alterações de produtos em Server-Sent Events (GET /produtos/stream), publicadas depois do commit.
+// Cada transação vira um único evento: uma escrita sai como CRIADO/ATUALIZADO/REMOVIDO e várias (um bloco
+// da importação em lote) saem juntas em um evento LOTE, então buffer e histórico contam commits, não produtos.
+// Cada evento é serializado uma vez e compartilhado por todos os assinantes. Nenhuma thread fica presa a
+// um assinante: cada um tem uma fila limitada (calmarket.stream.buffer), esvaziada por uma thread virtual só
+// enquanto houver o que enviar. Quem não acompanha é desconectado e, ao reconectar com Last-Event-ID,
+// recebe o que perdeu a partir do histórico em memória (calmarket.stream.historico).
+@Component
+public class FeedProdutos implements AutoCloseable {
+
+    // Enviado quando o Last-Event-ID não está mais no histórico: o cliente deve recarregar a listagem
+    public static final String REINICIO = "REINICIO";
+    // Várias alterações confirmadas na mesma transação, em ordem, como lista de {operacao, id, produto}
+    public static final String LOTE = "LOTE";
+
+    private final ObjectMapper objectMapper;
+    private final int buffer;
+    private final int maxAssinantes;
+    private final Duration duracao;
+
+    private final Set<Assinante> assinantes = ConcurrentHashMap.newKeySet();
+    private final ExecutorService envios;
+    private final ScheduledExecutorService heartbeat;
+    private final Counter lentos;
+
+    // Histórico circular dos últimos eventos, protegido pelo monitor desta instância
+    private final Evento[] historico;
+    // Começa no horário de inicialização para que IDs de antes de um reinício não sejam confundidos com novos
+    private final long inicio = System.currentTimeMillis();
+    private long sequencia = inicio;
+
+    private record Evento(long id, Set<ResponseBodyEmitter.DataWithMediaType> dados) {
+    }
+
+    // A operação só vai no corpo dentro de um LOTE; no evento simples ela já é o nome do evento
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private record Alteracao(ProdutoAlteradoEvent.Operacao operacao, int id, Produto produto) {
+    }
+
+    @Autowired
+    public FeedProdutos(ObjectMapper objectMapper, MeterRegistry registry,
+                        @Value("${calmarket.stream.historico}") int historico,
+                        @Value("${calmarket.stream.buffer}") int buffer,
+                        @Value("${calmarket.stream.max-assinantes}") int maxAssinantes,
+                        @Value("${calmarket.stream.duracao}") Duration duracao,
+                        @Value("${calmarket.stream.heartbeat}") Duration intervaloHeartbeat) {
+        this(objectMapper, registry, historico, buffer, maxAssinantes, duracao, intervaloHeartbeat,
+                Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("stream-", 0).factory()));
+    }
+
+    // Os testes passam um executor próprio para controlar quando as filas são esvaziadas
+    FeedProdutos(ObjectMapper objectMapper, MeterRegistry registry, int historico, int buffer,
+                 int maxAssinantes, Duration duracao, Duration intervaloHeartbeat, ExecutorService envios) {
+        this.envios = envios;
+        this.objectMapper = objectMapper;
+        this.historico = new Evento[historico];
+        this.buffer = buffer;
+        this.maxAssinantes = maxAssinantes;
+        this.duracao = duracao;
+
+        Gauge.builder("calmarket.stream.assinantes", assinantes, Set::size)
+                .description("Conexões abertas em /produtos/stream")
+                .register(registry);
+        this.lentos = Counter.builder("calmarket.stream.desconectados")
+                .description("Assinantes desconectados por não acompanhar os eventos")
+                .register(registry);
+
+        // Comentário periódico mantém a conexão viva em proxies e revela clientes que já foram embora
+        Set<ResponseBodyEmitter.DataWithMediaType> comentario = SseEmitter.event().comment("").build();
+        this.heartbeat = Executors.newSingleThreadScheduledExecutor(Thread.ofPlatform().daemon().name("stream-heartbeat").factory());
+        heartbeat.scheduleWithFixedDelay(() -> assinantes.forEach(assinante -> assinante.enviar(comentario)),
+                intervaloHeartbeat.toMillis(), intervaloHeartbeat.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    public SseEmitter assinar(String ultimoId) {
+        if (assinantes.size() >= maxAssinantes)
+            throw new SobrecargaException("LIMITE DE CONEXÕES DO STREAM ATINGIDO");
+
+        SseEmitter emitter = new SseEmitter(duracao.toMillis());
+        Assinante assinante = new Assinante(emitter);
+        emitter.onCompletion(() -> assinantes.remove(assinante));
+        emitter.onTimeout(emitter::complete);
+        emitter.onError(erro -> assinantes.remove(assinante));
+
+        // O primeiro envio já devolve os cabeçalhos ao cliente, antes de qualquer alteração
+        assinante.reenvio.add(SseEmitter.event().comment("conectado").build());
+        synchronized (this) {
+            if (ultimoId != null)
+                reenviar(assinante, ultimoId);
+            assinantes.add(assinante);
+        }
+        assinante.agendar();
+        return emitter;
+    }
+
+    // Guarda as alterações até o fim da transação; fora de uma transação, publica na hora
+    @EventListener
+    public void aoAlterar(ProdutoAlteradoEvent evento) {
+        if (assinantes.isEmpty() && historico.length == 0)
+            return;
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            publicar(List.of(evento));
+            return;
+        }
+        Transacao transacao = (Transacao) TransactionSynchronizationManager.getResource(Transacao.class);
+        if (transacao == null) {
+            transacao = new Transacao();
+            TransactionSynchronizationManager.bindResource(Transacao.class, transacao);
+            TransactionSynchronizationManager.registerSynchronization(transacao);
+        }
+        transacao.eventos.add(evento);
+    }
+
+    private class Transacao implements TransactionSynchronization {
+        private final List<ProdutoAlteradoEvent> eventos = new ArrayList<>();
+
+        @Override
+        public void afterCommit() {
+            publicar(eventos);
+        }
+
+        @Override
+        public void afterCompletion(int status) {
+            TransactionSynchronizationManager.unbindResource(Transacao.class);
+        }
+    }
+
+    private void publicar(List<ProdutoAlteradoEvent> eventos) {
+        List<Alteracao> alteracoes = new ArrayList<>(eventos.size());
+        for (ProdutoAlteradoEvent evento : eventos) {
+            // Removido vai só com o ID
+            alteracoes.add(new Alteracao(eventos.size() > 1 ? evento.getOperacao() : null, evento.getId(),
+                    evento.getOperacao() == ProdutoAlteradoEvent.Operacao.REMOVIDO ? null : evento.getProduto()));
+        }
+        String nome = eventos.size() > 1 ? LOTE : eventos.get(0).getOperacao().name();
+        String json = eventos.size() > 1 ? json(alteracoes) : json(alteracoes.get(0));
+
+        synchronized (this) {
+            long id = ++sequencia;
+            Evento novo = new Evento(id, SseEmitter.event()
+                    .id(String.valueOf(id))
+                    .name(nome)
+                    .data(json, MediaType.APPLICATION_JSON)
+                    .build());
+            if (historico.length > 0)
+                historico[(int) (id % historico.length)] = novo;
+            for (Assinante assinante : assinantes)
+                assinante.enviar(novo.dados());
+        }
+    }
+
+    // Chamado com o monitor adquirido: nenhum evento novo entra entre o reenvio e o registro do assinante.
+    // O reenvio usa os eventos já guardados no histórico e não conta no buffer, então quem foi desconectado
+    // por ficar para trás consegue retomar enquanto o Last-Event-ID estiver no histórico
+    private void reenviar(Assinante assinante, String ultimoId) {
+        long ultimo;
+        try {
+            ultimo = Long.parseLong(ultimoId.trim());
+        } catch (NumberFormatException e) {
+            ultimo = -1;
+        }
+        long maisAntigo = Math.max(inicio + 1, sequencia - historico.length + 1);
+        boolean disponivel = ultimo >= maisAntigo - 1 && ultimo <= sequencia;
+        if (!disponivel) {
+            assinante.reenvio.add(SseEmitter.event()
+                    .id(String.valueOf(sequencia))
+                    .name(REINICIO)
+                    .data("{}", MediaType.APPLICATION_JSON)
+                    .build());
+            return;
+        }
+        for (long id = ultimo + 1; id <= sequencia; id++)
+            assinante.reenvio.add(historico[(int) (id % historico.length)].dados());
+    }
+
+    private String json(Object alteracoes) {
+        try {
+            return objectMapper.writeValueAsString(alteracoes);
+        } catch (JsonProcessingException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    public void close() {
+        heartbeat.shutdownNow();
+        assinantes.forEach(assinante -> assinante.emitter.complete());
+        envios.shutdownNow();
+    }
+
+    private class Assinante {
+        private final SseEmitter emitter;
+        // Preenchida só antes do registro (conexão e eventos perdidos) e enviada antes da fila
+        private final ConcurrentLinkedQueue<Set<ResponseBodyEmitter.DataWithMediaType>> reenvio = new ConcurrentLinkedQueue<>();
+        private final ConcurrentLinkedQueue<Set<ResponseBodyEmitter.DataWithMediaType>> fila = new ConcurrentLinkedQueue<>();
+        private final AtomicInteger pendentes = new AtomicInteger();
+        private final AtomicBoolean agendado = new AtomicBoolean();
+
+        Assinante(SseEmitter emitter) {
+            this.emitter = emitter;
+        }
+
+        void enviar(Set<ResponseBodyEmitter.DataWithMediaType> dados) {
+            // Fila cheia: desconecta em vez de acumular memória; o cliente retoma pelo Last-Event-ID
+            if (pendentes.incrementAndGet() > buffer) {
+                if (assinantes.remove(this)) {
+                    lentos.increment();
+                    emitter.complete();
+                }
+                return;
+            }
+            fila.add(dados);
+            agendar();
+        }
+
+        // No máximo uma tarefa de envio por assinante; os eventos saem na ordem da fila
+        void agendar() {
+            if (agendado.compareAndSet(false, true))
+                envios.execute(this::esvaziar);
+        }
+
+        private void esvaziar() {
+            try {
+                Set<ResponseBodyEmitter.DataWithMediaType> dados;
+                while ((dados = reenvio.poll()) != null)
+                    emitter.send(dados);
+                while ((dados = fila.poll()) != null) {
+                    pendentes.decrementAndGet();
+                    emitter.send(dados);
+                }
+            } catch (IOException | IllegalStateException e) {
+                // Cliente desconectado ou emitter já encerrado
+                assinantes.remove(this);
+                reenvio.clear();
+                fila.clear();
+                return;
+            } finally {
+                agendado.set(false);
+            }
+            if (!fila.isEmpty())
+                agendar();
+        }
+    }
+}
@@ -0,0 +1,77 @@
+package br.com.fiap.calmarket.service;
+
+import br.com.fiap.calmarket.config.CacheConfig;
+import br.com.fiap.calmarket.dao.ProdutoDaoImpl;
+import br.com.fiap.calmarket.dto.Ordenacao;
+import br.com.fiap.calmarket.dto.ProdutoResumo;
+import br.com.fiap.calmarket.event.ProdutoAlteradoEvent;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.thymeleaf.ITemplateEngine;
+import org.thymeleaf.context.WebContext;
+import org.thymeleaf.web.servlet.JakartaServletWebApplication;
+
+import java.util.List;
+import java.util.Set;
+
+// Renderiza a tabela de /produtos/view (fragmento "tabela" de produtos.html) e guarda o HTML pronto.
+// A chave inclui a versão do catálogo, então qualquer escrita já faz as páginas antigas deixarem de ser usadas.
+@Service
+public class FragmentosProdutos {
+
+    public static final String TEMPLATE = "produtos";
+    public static final String FRAGMENTO = "tabela";
+
+    private final ProdutoDaoImpl produtoDao;
+    private final CatalogoVersao catalogoVersao;
+    private final ITemplateEngine templateEngine;
+    private final Cache cache;
+    private final boolean habilitado;
+
+    // Com spring.thymeleaf.cache=false (desenvolvimento) o HTML também não é guardado, para refletir edições no template
+    public FragmentosProdutos(ProdutoDaoImpl produtoDao, CatalogoVersao catalogoVersao, ITemplateEngine templateEngine,
+                              CacheManager cacheManager, @Value("${spring.thymeleaf.cache:true}") boolean habilitado) {
+        this.produtoDao = produtoDao;
+        this.catalogoVersao = catalogoVersao;
+        this.templateEngine = templateEngine;
+        this.cache = cacheManager.getCache(CacheConfig.FRAGMENTOS);
+        this.habilitado = habilitado;
+    }
+
+    public String tabela(Ordenacao ordenacao, String valor, Integer after, int limite,
+                         HttpServletRequest request, HttpServletResponse response) {
+        if (!habilitado)
+            return renderizar(ordenacao, valor, after, limite, request, response);
+
+        // Versão lida antes da consulta: no pior caso dados mais novos ficam sob uma versão antiga, nunca o contrário
+        String chave = catalogoVersao.atual() + ":" + ordenacao.parametro() + ":" + after + ":" + valor + ":" + limite;
+        return cache.get(chave, () -> renderizar(ordenacao, valor, after, limite, request, response));
+    }
+
+    private String renderizar(Ordenacao ordenacao, String valor, Integer after, int limite,
+                              HttpServletRequest request, HttpServletResponse response) {
+        List<ProdutoResumo> produtos = produtoDao.listarResumo(ordenacao, valor, after, limite);
+        ProdutoResumo ultimo = produtos.size() == limite ? produtos.get(produtos.size() - 1) : null;
+
+        WebContext contexto = new WebContext(JakartaServletWebApplication.buildApplication(request.getServletContext())
+                .buildExchange(request, response));
+        contexto.setVariable("produtos", produtos);
+        contexto.setVariable("limit", limite);
+        contexto.setVariable("after", after);
+        contexto.setVariable("sort", ordenacao.parametro());
+        contexto.setVariable("proximo", ultimo != null ? ultimo.getId() : null);
+        contexto.setVariable("valorProximo", ultimo != null ? ordenacao.valor(ultimo) : null);
+        return templateEngine.process(TEMPLATE, Set.of(FRAGMENTO), contexto);
+    }
+
+    // Libera a memória das páginas que ficaram com versão antiga
+    @TransactionalEventListener
+    public void aoAlterar(ProdutoAlteradoEvent evento) {
+        cache.clear();
+    }
+}
@@ -0,0 +1,433 @@
+package br.com.fiap.calmarket.service;
+
+import br.com.fiap.calmarket.Exception.SobrecargaException;
+import br.com.fiap.calmarket.dao.ProdutoDao;
+import br.com.fiap.calmarket.dto.Sugestao;
+import br.com.fiap.calmarket.event.ProdutoAlteradoEvent;
+import br.com.fiap.calmarket.model.Produto;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Async;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.text.Normalizer;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+
+// Índice invertido em memória sobre nome e tipo dos produtos, para o autocomplete por prefixo.
+// Cada termo (minúsculo e sem acentos) aponta para um array ordenado de IDs de produto.
+@Component
+public class IndiceSugestoes {
+
+    private static final Logger log = LoggerFactory.getLogger(IndiceSugestoes.class);
+
+    private static final Pattern ACENTOS = Pattern.compile("\\p{M}+");
+    private static final Pattern SEPARADORES = Pattern.compile("[^a-z0-9]+");
+    private static final Locale PT_BR = Locale.forLanguageTag("pt-BR");
+    private static final int[] VAZIO = new int[0];
+    // Consultas com mais de um termo: IDs da menor lista percorridos em blocos e candidatos conferidos direto
+    // na entrada antes de cruzar as listas inteiras
+    private static final int BLOCO = 256;
+    private static final int VARREDURA_DIRETA = 8192;
+    private static final int CONFERENCIA_DIRETA = 512;
+    // Cruzar listas ordenadas custa bem menos por ID do que conferir a entrada de um candidato no mapa
+    private static final int CUSTO_PREFIXO = 4;
+
+    private final ProdutoDao produtoDao;
+
+    // termo -> IDs ordenados; os arrays nunca são alterados, apenas substituídos
+    private final ConcurrentSkipListMap<String, int[]> postings = new ConcurrentSkipListMap<>();
+    // ID -> dados indexados, usados para exibir a sugestão e para retirar os termos antigos
+    private final ConcurrentHashMap<Integer, Entrada> entradas = new ConcurrentHashMap<>();
+    // As escritas (entradas e listas) acontecem uma de cada vez; as consultas não travam
+    private final Object escrita = new Object();
+    // Alterações recebidas enquanto a carga inicial percorre a tabela; aplicadas na ordem quando ela termina,
+    // para que a carga (uma leitura mais antiga) não desfaça nem reinsira nada. Protegidas pelo próprio monitor
+    private final List<Runnable> adiadas = new ArrayList<>();
+    private boolean carregando;
+    private volatile boolean pronto;
+
+    private record Entrada(String nome, String tipo, long versao, String[] termos) {
+    }
+
+    public IndiceSugestoes(ProdutoDao produtoDao) {
+        this.produtoDao = produtoDao;
+    }
+
+    // Roda em segundo plano depois que a aplicação está pronta: a varredura da tabela não atrasa a subida,
+    // e até terminar o autocomplete responde 503 (pronto()) em vez de sugestões parciais
+    @Async
+    @EventListener(ApplicationReadyEvent.class)
+    public void carregar() {
+        long inicio = System.nanoTime();
+        synchronized (adiadas) {
+            carregando = true;
+        }
+        Map<String, int[]> buffers = new HashMap<>();
+        Map<String, Integer> tamanhos = new HashMap<>();
+
+        try {
+            while (true) {
+                try {
+                    // Os produtos chegam em ordem de ID, então cada lista só recebe inserções no fim
+                    produtoDao.exportar(produto -> {
+                        Entrada entrada = entrada(produto);
+                        if (entradas.putIfAbsent(produto.getId(), entrada) != null)
+                            return; // já indexado por um evento mais recente
+                        for (String termo : entrada.termos()) {
+                            int[] ids = buffers.computeIfAbsent(termo, t -> new int[4]);
+                            int tamanho = tamanhos.getOrDefault(termo, 0);
+                            if (tamanho == ids.length) {
+                                ids = Arrays.copyOf(ids, tamanho * 2);
+                                buffers.put(termo, ids);
+                            }
+                            ids[tamanho] = produto.getId();
+                            tamanhos.put(termo, tamanho + 1);
+                        }
+                    });
+                    break;
+                } catch (SobrecargaException e) {
+                    // Permissões de exportação do bulkhead ocupadas: nada foi lido, tenta de novo
+                    try {
+                        TimeUnit.SECONDS.sleep(1);
+                    } catch (InterruptedException interrompida) {
+                        Thread.currentThread().interrupt();
+                        throw e;
+                    }
+                }
+            }
+
+            buffers.forEach((termo, ids) -> {
+                int[] carregados = Arrays.copyOf(ids, tamanhos.get(termo));
+                postings.merge(termo, carregados, IndiceSugestoes::unir);
+            });
+            pronto = true;
+        } finally {
+            // Mesmo com a carga interrompida as alterações guardadas são aplicadas e as próximas deixam de esperar
+            synchronized (adiadas) {
+                adiadas.forEach(Runnable::run);
+                adiadas.clear();
+                carregando = false;
+            }
+        }
+        log.info("Índice de sugestões carregado: {} produtos, {} termos em {} ms", entradas.size(), postings.size(),
+                TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - inicio));
+    }
+
+    public boolean pronto() {
+        return pronto;
+    }
+
+    // Os eventos de uma transação são guardados e aplicados juntos depois do commit: cada termo alterado recebe
+    // uma única nova lista por commit, e não uma cópia por produto (um lote de 500 produtos com "arroz" copiaria
+    // a lista inteira do termo 500 vezes)
+    @EventListener
+    public void aoAlterar(ProdutoAlteradoEvent evento) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            aplicarEventos(List.of(evento));
+            return;
+        }
+        EventosPendentes pendentes = (EventosPendentes) TransactionSynchronizationManager.getResource(this);
+        if (pendentes == null) {
+            pendentes = new EventosPendentes();
+            TransactionSynchronizationManager.bindResource(this, pendentes);
+            TransactionSynchronizationManager.registerSynchronization(pendentes);
+        }
+        pendentes.eventos.add(evento);
+    }
+
+    // Ignora versões mais antigas que a indexada (eventos fora de ordem)
+    public void indexar(Produto produto) {
+        aplicar(List.of(new Alteracao(produto.getId(), produto)));
+    }
+
+    public void remover(int id) {
+        aplicar(List.of(new Alteracao(id, null)));
+    }
+
+    private void aplicarEventos(List<ProdutoAlteradoEvent> eventos) {
+        List<Alteracao> alteracoes = new ArrayList<>(eventos.size());
+        for (ProdutoAlteradoEvent evento : eventos) {
+            if (evento.getOperacao() == ProdutoAlteradoEvent.Operacao.REMOVIDO)
+                alteracoes.add(new Alteracao(evento.getId(), null));
+            else
+                alteracoes.add(new Alteracao(evento.getId(), evento.getProduto()));
+        }
+        synchronized (adiadas) {
+            if (carregando) {
+                adiadas.add(() -> aplicar(alteracoes));
+                return;
+            }
+        }
+        aplicar(alteracoes);
+    }
+
+    // Uma escrita por vez: primeiro troca as entradas do lote, na ordem, juntando por termo o que entra e o que sai;
+    // depois cada termo é mesclado uma única vez
+    private void aplicar(Collection<Alteracao> alteracoes) {
+        Map<String, Map<Integer, Boolean>> mudancas = new HashMap<>();
+        synchronized (escrita) {
+            for (Alteracao alteracao : alteracoes) {
+                Entrada nova = alteracao.produto() != null ? entrada(alteracao.produto()) : null;
+                entradas.compute(alteracao.id(), (id, antiga) -> {
+                    if (nova != null && antiga != null && antiga.versao() > nova.versao())
+                        return antiga;
+                    if (antiga != null)
+                        for (String termo : antiga.termos())
+                            mudancas.computeIfAbsent(termo, t -> new HashMap<>()).put(id, false);
+                    if (nova != null)
+                        for (String termo : nova.termos())
+                            mudancas.computeIfAbsent(termo, t -> new HashMap<>()).put(id, true);
+                    return nova;
+                });
+            }
+            mudancas.forEach((termo, ids) -> postings.compute(termo, (t, atuais) -> mesclar(atuais == null ? VAZIO : atuais, ids)));
+        }
+    }
+
+    // Removido quando produto é nulo
+    private record Alteracao(int id, Produto produto) {
+    }
+
+    private class EventosPendentes implements TransactionSynchronization {
+        private final List<ProdutoAlteradoEvent> eventos = new ArrayList<>();
+
+        @Override
+        public void afterCommit() {
+            aplicarEventos(eventos);
+        }
+
+        @Override
+        public void afterCompletion(int status) {
+            TransactionSynchronizationManager.unbindResource(IndiceSugestoes.this);
+        }
+    }
+
+    // Todos os termos da consulta filtram o resultado; o último é tratado como prefixo (ainda sendo digitado)
+    public List<Sugestao> sugerir(String consulta, int limite) {
+        String[] termos = termos(consulta);
+        if (termos.length == 0)
+            return List.of();
+        String prefixo = termos[termos.length - 1];
+
+        List<Sugestao> sugestoes = new ArrayList<>(limite);
+        if (termos.length == 1) {
+            // Percorre os termos com o prefixo em ordem alfabética até preencher o limite
+            Set<Integer> vistos = new HashSet<>();
+            for (int[] ids : postings.subMap(prefixo, prefixo + Character.MAX_VALUE).values()) {
+                for (int id : ids) {
+                    if (vistos.add(id) && adicionar(sugestoes, id, prefixo) && sugestoes.size() == limite)
+                        return sugestoes;
+                }
+            }
+            return sugestoes;
+        }
+
+        // Listas dos termos completos, da menor para a maior; o último termo filtra por prefixo
+        int[][] listas = new int[termos.length - 1][];
+        for (int i = 0; i < listas.length; i++)
+            listas[i] = postings.getOrDefault(termos[i], VAZIO);
+        Arrays.sort(listas, Comparator.comparingInt(ids -> ids.length));
+
+        // Percorre a menor em blocos, cruzando cada bloco com as demais e conferindo o prefixo na entrada:
+        // com um prefixo comum entre os candidatos o limite se preenche logo, sem cruzar as listas inteiras
+        int[] menor = listas[0];
+        int posicao = 0, conferidos = 0;
+        while (posicao < menor.length && posicao < VARREDURA_DIRETA && conferidos < CONFERENCIA_DIRETA) {
+            int[] bloco = Arrays.copyOfRange(menor, posicao, Math.min(posicao + BLOCO, menor.length));
+            posicao += bloco.length;
+            for (int i = 1; i < listas.length && bloco.length > 0; i++)
+                bloco = intersecao(bloco, listas[i], bloco[0], Integer.MAX_VALUE);
+            for (int id : bloco) {
+                conferidos++;
+                if (adicionar(sugestoes, id, prefixo) && sugestoes.size() == limite)
+                    return sugestoes;
+            }
+        }
+        if (posicao == menor.length)
+            return sugestoes;
+
+        // Prefixo raro entre os candidatos: cruza o restante das listas e depois com as listas dos termos do prefixo
+        int minimo = menor[posicao];
+        int[] candidatos = menor;
+        for (int i = 1; i < listas.length && candidatos.length > 0; i++)
+            candidatos = intersecao(candidatos, listas[i], minimo, Integer.MAX_VALUE);
+        int[] restantes = comPrefixo(candidatos, minimo, prefixo, limite - sugestoes.size());
+        if (restantes == null)
+            restantes = candidatos; // conferidos um a um
+        for (int i = inicio(restantes, minimo); i < restantes.length; i++) {
+            if (adicionar(sugestoes, restantes[i], prefixo) && sugestoes.size() == limite)
+                break;
+        }
+        return sugestoes;
+    }
+
+    // Candidatos a partir de "minimo" que têm algum termo com o prefixo, cruzando-os com a lista de cada termo,
+    // ou null se esses termos somarem mais do que CUSTO_PREFIXO vezes os candidatos (aí sai mais barato conferir
+    // um a um). Os menores IDs do resultado estão entre os "limite" menores de cada cruzamento
+    private int[] comPrefixo(int[] candidatos, int minimo, String prefixo, int limite) {
+        long orcamento = (long) CUSTO_PREFIXO * (candidatos.length - inicio(candidatos, minimo));
+        int[] encontrados = new int[limite];
+        int total = 0;
+        for (int[] ids : postings.subMap(prefixo, prefixo + Character.MAX_VALUE).values()) {
+            orcamento -= Math.min(ids.length, candidatos.length) + 1;
+            if (orcamento < 0)
+                return null;
+            int[] cruzados = intersecao(candidatos, ids, minimo, limite);
+            if (total + cruzados.length > encontrados.length)
+                encontrados = Arrays.copyOf(encontrados, Math.max(encontrados.length * 2, total + cruzados.length));
+            System.arraycopy(cruzados, 0, encontrados, total, cruzados.length);
+            total += cruzados.length;
+        }
+        return Arrays.stream(encontrados, 0, total).sorted().distinct().toArray();
+    }
+
+    // Confere o prefixo na entrada atual, descartando IDs de termos que o produto já não tem
+    private boolean adicionar(List<Sugestao> sugestoes, int id, String prefixo) {
+        Entrada entrada = entradas.get(id);
+        if (entrada == null || !comecaCom(entrada.termos(), prefixo))
+            return false;
+        sugestoes.add(new Sugestao(id, entrada.nome(), entrada.tipo()));
+        return true;
+    }
+
+    // Invariante conferida nos testes: cada termo de uma entrada aponta para o ID, e cada ID de um termo tem
+    // esse termo na entrada. Só vale com o índice parado
+    List<String> inconsistencias() {
+        List<String> erros = new ArrayList<>();
+        entradas.forEach((id, entrada) -> {
+            for (String termo : entrada.termos())
+                if (Arrays.binarySearch(postings.getOrDefault(termo, VAZIO), id) < 0)
+                    erros.add(termo + " sem o ID " + id);
+        });
+        postings.forEach((termo, ids) -> {
+            for (int id : ids) {
+                Entrada entrada = entradas.get(id);
+                if (entrada == null || !Arrays.asList(entrada.termos()).contains(termo))
+                    erros.add(termo + " com o ID " + id + " sem esse termo");
+            }
+        });
+        return erros;
+    }
+
+    private static Entrada entrada(Produto produto) {
+        Set<String> termos = new LinkedHashSet<>();
+        Collections.addAll(termos, termos(produto.getNome()));
+        Collections.addAll(termos, termos(produto.getTipo()));
+        long versao = produto.getVersao() != null ? produto.getVersao() : 0;
+        return new Entrada(produto.getNome(), produto.getTipo(), versao, termos.toArray(String[]::new));
+    }
+
+    // Minúsculas, sem acentos ("Pão Francês" -> "pao", "frances")
+    static String[] termos(String texto) {
+        if (texto == null || texto.isBlank())
+            return new String[0];
+        String normalizado = ACENTOS.matcher(Normalizer.normalize(texto, Normalizer.Form.NFD)).replaceAll("");
+        return Arrays.stream(SEPARADORES.split(normalizado.toLowerCase(PT_BR)))
+                .filter(termo -> !termo.isEmpty())
+                .toArray(String[]::new);
+    }
+
+    private static boolean comecaCom(String[] termos, String prefixo) {
+        for (String termo : termos)
+            if (termo.startsWith(prefixo))
+                return true;
+        return false;
+    }
+
+    // Aplica numa única cópia as entradas (true) e saídas (false) de IDs de um termo; null se a lista esvaziar
+    private static int[] mesclar(int[] ids, Map<Integer, Boolean> mudancas) {
+        int[] alterados = mudancas.keySet().stream().mapToInt(Integer::intValue).sorted().toArray();
+        int[] posicoes = new int[alterados.length];
+        int tamanho = ids.length;
+        for (int j = 0; j < alterados.length; j++) {
+            posicoes[j] = Arrays.binarySearch(ids, alterados[j]);
+            boolean presente = posicoes[j] >= 0, fica = mudancas.get(alterados[j]);
+            tamanho += presente == fica ? 0 : fica ? 1 : -1;
+        }
+        if (tamanho == 0)
+            return null;
+
+        int[] novo = new int[tamanho];
+        int i = 0, k = 0;
+        for (int j = 0; j < alterados.length; j++) {
+            int posicao = posicoes[j] >= 0 ? posicoes[j] : -posicoes[j] - 1;
+            System.arraycopy(ids, i, novo, k, posicao - i);
+            k += posicao - i;
+            i = posicoes[j] >= 0 ? posicao + 1 : posicao;
+            if (mudancas.get(alterados[j]))
+                novo[k++] = alterados[j];
+        }
+        System.arraycopy(ids, i, novo, k, ids.length - i);
+        return novo;
+    }
+
+    // Listas de tamanhos parecidos são cruzadas em paralelo; se uma é bem maior ("arroz" e "mercearia"), percorre a
+    // menor e procura cada ID na maior por busca exponencial a partir da última posição. Só IDs a partir de
+    // "minimo", parando em "maximo" deles
+    private static int[] intersecao(int[] a, int[] b, int minimo, int maximo) {
+        if (a.length > b.length) {
+            int[] troca = a;
+            a = b;
+            b = troca;
+        }
+        int i = inicio(a, minimo), j = inicio(b, minimo), k = 0;
+        int[] resultado = new int[Math.min(a.length - i, maximo)];
+        if ((b.length - j) / 8 <= a.length - i) {
+            // Sem desvios: o avanço de cada lado sai da comparação, o que o processador não precisa adivinhar
+            while (i < a.length && j < b.length && k < resultado.length) {
+                int x = a[i], y = b[j];
+                resultado[k] = x;
+                k += x == y ? 1 : 0;
+                i += x <= y ? 1 : 0;
+                j += y <= x ? 1 : 0;
+            }
+        } else {
+            for (; i < a.length && j < b.length && k < resultado.length; i++) {
+                int passo = 1;
+                while (j + passo < b.length && b[j + passo] < a[i])
+                    passo <<= 1;
+                int posicao = Arrays.binarySearch(b, j, Math.min(j + passo + 1, b.length), a[i]);
+                if (posicao >= 0) {
+                    resultado[k++] = a[i];
+                    j = posicao + 1;
+                } else {
+                    j = -posicao - 1;
+                }
+            }
+        }
+        return k == resultado.length ? resultado : Arrays.copyOf(resultado, k);
+    }
+
+    // Posição do primeiro ID maior ou igual a "minimo"
+    private static int inicio(int[] ids, int minimo) {
+        if (ids.length == 0 || ids[0] >= minimo)
+            return 0;
+        int posicao = Arrays.binarySearch(ids, minimo);
+        return posicao >= 0 ? posicao : -posicao - 1;
+    }
+
+    // União de dois arrays ordenados, sem repetições
+    private static int[] unir(int[] a, int[] b) {
+        int[] resultado = new int[a.length + b.length];
+        int i = 0, j = 0, k = 0;
+        while (i < a.length || j < b.length) {
+            int proximo;
+            if (j == b.length || (i < a.length && a[i] < b[j])) proximo = a[i++];
+            else if (i == a.length || b[j] < a[i]) proximo = b[j++];
+            else {
+                proximo = a[i++];
+                j++;
+            }
+            resultado[k++] = proximo;
+        }
+        return Arrays.copyOf(resultado, k);
+    }
+}
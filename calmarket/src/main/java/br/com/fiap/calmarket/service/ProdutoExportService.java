@@ -0,0 +1,79 @@
+package br.com.fiap.calmarket.service;
+
+import br.com.fiap.calmarket.dao.ProdutoDao;
+import br.com.fiap.calmarket.model.Produto;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import org.springframework.stereotype.Service;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+
+@Service
+public class ProdutoExportService {
+
+    public static final String CSV = "csv";
+    public static final String NDJSON = "ndjson";
+
+    private final ProdutoDao produtoDao;
+    private final ObjectMapper objectMapper;
+
+    public ProdutoExportService(ProdutoDao produtoDao, ObjectMapper objectMapper) {
+        this.produtoDao = produtoDao;
+        this.objectMapper = objectMapper;
+    }
+
+    // Escreve cada produto assim que é lido do banco; nenhum momento o catálogo inteiro fica em memória
+    public void exportar(String formato, OutputStream saida) throws IOException {
+        Writer writer = new BufferedWriter(new OutputStreamWriter(saida, StandardCharsets.UTF_8));
+        if (CSV.equals(formato))
+            exportarCsv(writer);
+        else
+            exportarNdjson(writer);
+        writer.flush();
+    }
+
+    private void exportarCsv(Writer writer) throws IOException {
+        writer.write("id,nome,tipo,setor,tamanho,preco\n");
+        produtoDao.exportar(produto -> {
+            try {
+                writer.write(produto.getId() + ","
+                        + csv(produto.getNome()) + ","
+                        + csv(produto.getTipo()) + ","
+                        + produto.getSetor() + ","
+                        + csv(produto.getTamanho()) + ","
+                        + produto.getPreco().toPlainString() + "\n");
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+    }
+
+    private void exportarNdjson(Writer writer) throws IOException {
+        // Sem flush a cada valor: o BufferedWriter decide quando enviar os bytes
+        ObjectWriter escritor = objectMapper.writerFor(Produto.class)
+                .without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+        JsonGenerator gerador = objectMapper.getFactory().createGenerator(writer);
+        gerador.setRootValueSeparator(null);
+        produtoDao.exportar(produto -> {
+            try {
+                escritor.writeValue(gerador, produto);
+                gerador.writeRaw('\n');
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+        gerador.flush();
+    }
+
+    private String csv(String valor) {
+        if (valor == null)
+            return "";
+        // Vírgula, aspas e quebras de linha (\n ou \r) exigem o valor entre aspas (RFC 4180)
+        if (valor.indexOf(',') < 0 && valor.indexOf('"') < 0 && valor.indexOf('\n') < 0 && valor.indexOf('\r') < 0)
+            return valor;
+        return '"' + valor.replace("\"", "\"\"") + '"';
+    }
+}
@@ -0,0 +1,111 @@
+package br.com.fiap.calmarket.service;
+
+import br.com.fiap.calmarket.dao.ProdutoDao;
+import br.com.fiap.calmarket.dto.ResultadoLote;
+import br.com.fiap.calmarket.model.Produto;
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.databind.JsonMappingException;
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+@Service
+public class ProdutoLoteService {
+
+    private final ProdutoDao produtoDao;
+    private final ObjectMapper objectMapper;
+    private final Validator validator;
+    private final int tamanhoLote;
+
+    public ProdutoLoteService(ProdutoDao produtoDao, ObjectMapper objectMapper, Validator validator,
+                              @Value("${calmarket.lote.tamanho}") int tamanhoLote) {
+        this.produtoDao = produtoDao;
+        this.objectMapper = objectMapper;
+        this.validator = validator;
+        this.tamanhoLote = tamanhoLote;
+    }
+
+    // Lê um array JSON ou NDJSON item a item, sem carregar o corpo inteiro em memória
+    public ResultadoLote importar(InputStream entrada) throws IOException {
+        ResultadoLote resultado = new ResultadoLote();
+        List<Produto> lote = new ArrayList<>(tamanhoLote);
+        List<Integer> indices = new ArrayList<>(tamanhoLote);
+
+        try (MappingIterator<Produto> itens = objectMapper.readerFor(Produto.class).readValues(entrada)) {
+            int indice = 0;
+            while (true) {
+                Produto produto;
+                try {
+                    if (!itens.hasNextValue())
+                        break;
+                    produto = itens.nextValue();
+                } catch (JsonParseException e) {
+                    // JSON malformado: não há como continuar a leitura
+                    resultado.adicionarErro(indice, List.of("JSON inválido: " + e.getOriginalMessage()));
+                    resultado.setTotal(indice + 1);
+                    break;
+                } catch (JsonMappingException e) {
+                    resultado.adicionarErro(indice++, List.of(e.getOriginalMessage()));
+                    resultado.setTotal(indice);
+                    continue;
+                }
+
+                int atual = indice++;
+                resultado.setTotal(indice);
+                Set<ConstraintViolation<Produto>> violacoes = validator.validate(produto);
+                if (!violacoes.isEmpty()) {
+                    resultado.adicionarErro(atual, violacoes.stream().map(ConstraintViolation::getMessage).sorted().toList());
+                    continue;
+                }
+
+                produto.setId(0); // IDs sempre gerados pela sequência
+                lote.add(produto);
+                indices.add(atual);
+                if (lote.size() == tamanhoLote) {
+                    gravar(lote, indices, resultado);
+                    lote.clear();
+                    indices.clear();
+                }
+            }
+        }
+        gravar(lote, indices, resultado);
+        return resultado;
+    }
+
+    private void gravar(List<Produto> lote, List<Integer> indices, ResultadoLote resultado) {
+        if (lote.isEmpty())
+            return;
+        try {
+            produtoDao.cadastrarLote(lote);
+            resultado.setInseridos(resultado.getInseridos() + lote.size());
+        } catch (RuntimeException e) {
+            // Um item inválido para o banco derruba a transação do bloco: regrava item a item para isolá-lo
+            for (int i = 0; i < lote.size(); i++) {
+                Produto produto = lote.get(i);
+                produto.setId(0);
+                try {
+                    produtoDao.cadastrar(produto);
+                    resultado.setInseridos(resultado.getInseridos() + 1);
+                } catch (RuntimeException erro) {
+                    resultado.adicionarErro(indices.get(i), List.of(mensagem(erro)));
+                }
+            }
+        }
+    }
+
+    private String mensagem(Throwable erro) {
+        Throwable causa = erro;
+        while (causa.getCause() != null)
+            causa = causa.getCause();
+        return causa.getMessage();
+    }
+}
@@ -3,22 +3,32 @@ package br.com.fiap.calmarket.service;
 import br.com.fiap.calmarket.dao.UsuarioDao;
 import br.com.fiap.calmarket.model.Role;
 import br.com.fiap.calmarket.model.Usuario;
-import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Async;
 import org.springframework.security.core.userdetails.*;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
 
 @Service
-public class UsuarioService implements UserDetailsService {
+public class UsuarioService implements UserDetailsService, UserDetailsPasswordService {
+
+    private static final Logger log = LoggerFactory.getLogger(UsuarioService.class);
 
     private final UsuarioDao usuarioDao;
     private final PasswordEncoder passwordEncoder;
+    private final UserCache userCache;
 
-    public UsuarioService(UsuarioDao usuarioDao, PasswordEncoder passwordEncoder) {
+    public UsuarioService(UsuarioDao usuarioDao, PasswordEncoder passwordEncoder, UserCache userCache) {
         this.usuarioDao = usuarioDao;
         this.passwordEncoder = passwordEncoder;
+        this.userCache = userCache;
     }
 
+    // O usuário lido entra no cache já aqui: o DaoAuthenticationProvider só guarda depois da senha conferida, então
+    // um login recusado com 503 (pool de hash cheio) voltava ao banco a cada nova tentativa, justo na tempestade
     @Override
     public UserDetails loadUserByUsername(String email) throws UsernameNotFoundException {
         Usuario usuario = usuarioDao.findByEmail(email); // usando DAO
@@ -26,15 +36,31 @@ public class UsuarioService implements UserDetailsService {
             throw new UsernameNotFoundException("Usuário não encontrado");
         }
 
-        return User.builder()
+        UserDetails user = User.builder()
                 .username(usuario.getEmail())
                 .password(usuario.getSenha())
                 .roles(usuario.getRole().name())
                 .build();
+        userCache.putUserInCache(user);
+        return user;
+    }
+
+    // Chamado pelo Spring Security após um login válido cujo hash usa custo menor que o atual
+    @Override
+    public UserDetails updatePassword(UserDetails user, String newPassword) {
+        Usuario usuario = usuarioDao.findByEmail(user.getUsername());
+        if (usuario == null)
+            return user;
+        usuario.setSenha(newPassword);
+        usuarioDao.cadastrar(usuario); // merge de um usuário existente atualiza a senha
+        userCache.removeUserFromCache(user.getUsername());
+        return User.withUserDetails(user).password(newPassword).build();
     }
 
-    // Método para criar o admin na inicialização
-    @PostConstruct
+    // Método para criar o admin na inicialização.
+    // Roda em segundo plano depois que a aplicação está pronta, para a consulta e o hash não atrasarem a subida
+    @Async
+    @EventListener(ApplicationReadyEvent.class)
     public void criarAdmin() {
         if (usuarioDao.findByEmail("admin@calmarket.com") == null) {
             Usuario admin = new Usuario();
@@ -43,7 +69,7 @@ public class UsuarioService implements UserDetailsService {
             admin.setSenha(passwordEncoder.encode("admin123")); // senha inicial
             admin.setRole(Role.ADMIN);
             usuarioDao.cadastrar(admin); // ou usuarioDao.cadastrar(admin)
-            System.out.println("Admin criado: admin@calmarket.com / admin123");
+            log.info("Admin criado: admin@calmarket.com / admin123");
         }
     }
 }
@@ -0,0 +1,38 @@
+-- Schema inicial (MySQL 8), igual ao que o Hibernate gera a partir das entidades Produto e Usuario.
+-- Bancos criados antes pelo ddl-auto=update entram como baseline nesta versão (spring.flyway.baseline-on-migrate).
+
+-- Sequência emulada usada pelo gerador SQ_PRODUTO (blocos de Produto.BLOCO_IDS IDs)
+create table cm_sq_produto (
+    next_val bigint
+) engine=InnoDB;
+
+insert into cm_sq_produto values ( 1 );
+
+create table cm_tb_produto (
+    id integer not null,
+    preco decimal(10,2) not null,
+    atualizado_em datetime(6),
+    versao bigint not null,
+    nome varchar(255) not null,
+    tamanho varchar(255) not null,
+    tipo varchar(255) not null,
+    setor enum ('ALIMENTOS','BEBIDAS','HORTIFRUTI','LIMPEZA','PANIFICADORA','UTENSILIOS') not null,
+    primary key (id)
+) engine=InnoDB;
+
+create table tds_users_mercado (
+    id bigint not null auto_increment,
+    email varchar(255),
+    nome varchar(255),
+    senha varchar(255),
+    role enum ('ADMIN','CLIENTE'),
+    primary key (id)
+) engine=InnoDB;
+
+create index IDX_PRODUTO_SETOR_PRECO on cm_tb_produto (setor, preco);
+create index IDX_PRODUTO_SETOR_TIPO_TAMANHO on cm_tb_produto (setor, tipo, tamanho);
+create index IDX_PRODUTO_TIPO_TAMANHO on cm_tb_produto (tipo, tamanho);
+create index IDX_PRODUTO_NOME_ID on cm_tb_produto (nome, id);
+create index IDX_PRODUTO_PRECO_ID on cm_tb_produto (preco, id);
+
+alter table tds_users_mercado add constraint UK_USUARIO_EMAIL unique (email);
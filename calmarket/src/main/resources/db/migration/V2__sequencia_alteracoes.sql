@@ -0,0 +1,23 @@
+-- Sequência de alterações para a sincronização incremental (/produtos/alteracoes).
+-- Produtos já existentes ficam na posição 0 e só aparecem na sincronização completa (sem desde).
+
+create table cm_tb_seq_alteracao (
+    id integer not null,
+    valor bigint not null,
+    primary key (id)
+) engine=InnoDB;
+
+insert into cm_tb_seq_alteracao values ( 1, 0 );
+
+alter table cm_tb_produto add column seq_alteracao bigint not null default 0;
+
+create index IDX_PRODUTO_SEQ_ALTERACAO_ID on cm_tb_produto (seq_alteracao, id);
+
+create table cm_tb_produto_removido (
+    id integer not null,
+    seq_alteracao bigint not null,
+    removido_em datetime(6) not null,
+    primary key (id)
+) engine=InnoDB;
+
+create index IDX_PRODUTO_REMOVIDO_SEQ on cm_tb_produto_removido (seq_alteracao);
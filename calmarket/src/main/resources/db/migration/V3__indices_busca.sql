@@ -0,0 +1,11 @@
+-- Busca por filtros: índices (filtros..., ID) na ordem do cursor, para ler cada página direto do índice.
+-- No InnoDB o ID já vinha implícito no fim dos índices antigos; declará-lo deixa a ordem explícita para o otimizador
+drop index IDX_PRODUTO_SETOR_PRECO on cm_tb_produto;
+drop index IDX_PRODUTO_SETOR_TIPO_TAMANHO on cm_tb_produto;
+drop index IDX_PRODUTO_TIPO_TAMANHO on cm_tb_produto;
+
+create index IDX_PRODUTO_SETOR_TIPO_TAMANHO_ID on cm_tb_produto (setor, tipo, tamanho, id);
+create index IDX_PRODUTO_TIPO_TAMANHO_ID on cm_tb_produto (tipo, tamanho, id);
+create index IDX_PRODUTO_SETOR_ID on cm_tb_produto (setor, id);
+create index IDX_PRODUTO_TIPO_ID on cm_tb_produto (tipo, id);
+create index IDX_PRODUTO_TAMANHO_ID on cm_tb_produto (tamanho, id);
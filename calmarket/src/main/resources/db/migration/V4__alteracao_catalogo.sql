@@ -0,0 +1,3 @@
+-- Horário da última alteração do catálogo, junto do contador: ETag e Last-Modified das listagens
+-- passam a vir do banco e valem iguais em todas as instâncias e depois de reinícios
+alter table cm_tb_seq_alteracao add column alterado_em datetime(6);
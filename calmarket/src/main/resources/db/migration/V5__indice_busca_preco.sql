@@ -0,0 +1,3 @@
+-- Busca por faixa de preço com setor, paginada por (preço, ID): a página sai da faixa do índice em vez de percorrer
+-- (SETOR, ID) conferindo o preço linha a linha. Sem setor a busca usa o IDX_PRODUTO_PRECO_ID, que já existe
+create index IDX_PRODUTO_SETOR_PRECO_ID on cm_tb_produto (setor, preco, id);
@@ -0,0 +1,183 @@
+package br.com.fiap.calmarket.benchmark;
+
+import br.com.fiap.calmarket.dao.ProdutoDaoImpl;
+import br.com.fiap.calmarket.dto.ProdutoFiltro;
+import br.com.fiap.calmarket.model.Setor;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.*;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// Latência da busca por filtros (ProdutoDao.buscar) conforme a tabela cresce até 1 milhão de produtos
+// (mvn -Pbenchmark test -Dtest=BuscaBenchmark). Usa um banco H2 próprio, semeado direto por JDBC.
+// Em cada tamanho mede p50/p95 de cada combinação de filtros e confere no plano de execução que cada uma lê o índice
+// esperado com os filtros como condição do índice, sem varrer a tabela nem ordenar a faixa encontrada. Falha se o p95 no maior tamanho passar de calmarket.bench.busca.fator vezes o p95 no menor.
+@SpringBootTest(properties = "spring.datasource.url=jdbc:h2:mem:busca;MODE=MySQL;DB_CLOSE_DELAY=-1")
+@ActiveProfiles("bench")
+@DirtiesContext
+class BuscaBenchmark {
+
+    private static final int LIMITE = 50;
+    private static final int BLOCO = 10_000;
+    private static final String[] NOMES = {"Arroz", "Feijão", "Detergente", "Pão", "Maçã", "Suco", "Faca", "Café"};
+
+    // indice: o que o plano deve usar, com os filtros como condição de leitura (e não conferidos linha a linha)
+    private record Caso(String nome, ProdutoFiltro filtro, String where, String ordem, String indice) {
+    }
+
+    // As faixas "estreitas" pegam poucas linhas: lidas em ordem de ID, cada página percorreria a tabela quase inteira
+    private static final List<Caso> CASOS = List.of(
+            new Caso("setor", filtro(Setor.BEBIDAS, null, null, null, null), "SETOR = 'BEBIDAS'", "SETOR, ID", "IDX_PRODUTO_SETOR_ID"),
+            new Caso("tipo", filtro(null, "Tipo 7", null, null, null), "TIPO = 'Tipo 7'", "TIPO, ID", "IDX_PRODUTO_TIPO_ID"),
+            new Caso("tamanho", filtro(null, null, "3kg", null, null), "TAMANHO = '3kg'", "TAMANHO, ID", "IDX_PRODUTO_TAMANHO_ID"),
+            new Caso("preco", filtro(null, null, null, "10", "12"), "PRECO >= 10 AND PRECO <= 12", "PRECO, ID", "IDX_PRODUTO_PRECO_ID"),
+            new Caso("preco-estreito", filtro(null, null, null, "10.00", "10.05"), "PRECO >= 10.00 AND PRECO <= 10.05", "PRECO, ID", "IDX_PRODUTO_PRECO_ID"),
+            new Caso("setor-preco", filtro(Setor.BEBIDAS, null, null, "10", "20"), "SETOR = 'BEBIDAS' AND PRECO >= 10 AND PRECO <= 20", "SETOR, PRECO, ID", "IDX_PRODUTO_SETOR_PRECO_ID"),
+            new Caso("setor-preco-estreito", filtro(Setor.BEBIDAS, null, null, "10.00", "10.20"), "SETOR = 'BEBIDAS' AND PRECO >= 10.00 AND PRECO <= 10.20", "SETOR, PRECO, ID", "IDX_PRODUTO_SETOR_PRECO_ID"),
+            new Caso("setor-tipo", filtro(Setor.BEBIDAS, "Tipo 7", null, null, null), "SETOR = 'BEBIDAS' AND TIPO = 'Tipo 7'", "SETOR, ID", "IDX_PRODUTO_SETOR_ID"),
+            new Caso("tipo-tamanho", filtro(null, "Tipo 7", "3kg", null, null), "TIPO = 'Tipo 7' AND TAMANHO = '3kg'", "TIPO, TAMANHO, ID", "IDX_PRODUTO_TIPO_TAMANHO_ID"),
+            new Caso("todos", filtro(Setor.BEBIDAS, "Tipo 7", "3kg", null, null), "SETOR = 'BEBIDAS' AND TIPO = 'Tipo 7' AND TAMANHO = '3kg'", "SETOR, TIPO, TAMANHO, ID", "IDX_PRODUTO_SETOR_TIPO_TAMANHO_ID"));
+
+    @Autowired
+    private ProdutoDaoImpl produtoDao;
+
+    @Autowired
+    private JdbcTemplate jdbc;
+
+    @Value("${calmarket.bench.busca.tamanhos}")
+    private int[] tamanhos;
+
+    @Value("${calmarket.bench.busca.consultas}")
+    private int consultas;
+
+    @Value("${calmarket.bench.busca.fator}")
+    private double fator;
+
+    private final Random random = new Random(42);
+
+    @Test
+    void latenciaPorTamanho() throws IOException {
+        Properties resultado = new Properties();
+        Map<String, double[]> primeiro = new HashMap<>();
+        Map<String, double[]> ultimo = new HashMap<>();
+        StringBuilder relatorio = new StringBuilder(String.format("%nBusca por filtros (%d consultas por caso, limit=%d)%n", consultas, LIMITE))
+                .append(String.format("%-10s %-22s %10s %10s%n", "produtos", "caso", "p50 ms", "p95 ms"));
+
+        int semeados = 0;
+        for (int tamanho : tamanhos) {
+            semear(semeados, tamanho);
+            semeados = tamanho;
+            jdbc.execute("ANALYZE");
+
+            for (Caso caso : CASOS) {
+                String plano = jdbc.queryForObject("EXPLAIN SELECT * FROM CM_TB_PRODUTO WHERE " + caso.where()
+                        + " AND " + cursor(caso) + " ORDER BY " + caso.ordem() + " LIMIT " + LIMITE, String.class);
+                // Mesma ordenação que o ProdutoDaoImpl.buscar gera: a página sai do índice já ordenada. O H2 escreve
+                // "/* INDICE: condições */" quando lê só a faixa; "/* INDICE */" sem condições é o índice percorrido inteiro
+                assertThat(plano).as(caso.nome() + " com " + tamanho + " produtos: " + plano)
+                        .doesNotContain("tableScan")
+                        .contains("index sorted")
+                        .containsIgnoringCase("." + caso.indice() + ": ");
+
+                double[] percentis = medir(caso, tamanho);
+                primeiro.putIfAbsent(caso.nome(), percentis);
+                ultimo.put(caso.nome(), percentis);
+                resultado.setProperty(tamanho + "." + caso.nome() + ".p50", formatar(percentis[0]));
+                resultado.setProperty(tamanho + "." + caso.nome() + ".p95", formatar(percentis[1]));
+                relatorio.append(String.format("%-10d %-22s %10.3f %10.3f%n", tamanho, caso.nome(), percentis[0], percentis[1]));
+            }
+        }
+
+        System.out.println(relatorio);
+        Path diretorio = Path.of(System.getProperty("benchmark.diretorio", "."));
+        gravar(resultado, diretorio.resolve("target/benchmark/busca.properties"));
+
+        // Latência "plana": o p95 no maior tamanho fica dentro do fator do p95 no menor (com folga mínima de 1 ms)
+        List<String> crescimentos = new ArrayList<>();
+        for (Caso caso : CASOS) {
+            double base = primeiro.get(caso.nome())[1];
+            double medido = ultimo.get(caso.nome())[1];
+            if (medido > Math.max(base * fator, base + 1))
+                crescimentos.add(caso.nome() + ": p95 " + formatar(base) + " ms -> " + formatar(medido) + " ms");
+        }
+        assertThat(crescimentos).as("buscas cuja latência cresceu com a tabela").isEmpty();
+    }
+
+    // p50 e p95 em milissegundos, com o cursor sorteado dentro da tabela atual (e da faixa, na ordem por preço)
+    private double[] medir(Caso caso, int tamanho) {
+        for (int i = 0; i < consultas / 4; i++) // aquecimento
+            produtoDao.buscar(caso.filtro(), precoApos(caso.filtro()), random.nextInt(tamanho), LIMITE);
+        long[] tempos = new long[consultas];
+        for (int i = 0; i < consultas; i++) {
+            boolean primeiraPagina = random.nextInt(4) == 0;
+            Integer apos = primeiraPagina ? null : random.nextInt(tamanho);
+            BigDecimal precoApos = primeiraPagina ? null : precoApos(caso.filtro());
+            long inicio = System.nanoTime();
+            produtoDao.buscar(caso.filtro(), precoApos, apos, LIMITE);
+            tempos[i] = System.nanoTime() - inicio;
+        }
+        Arrays.sort(tempos);
+        return new double[]{tempos[consultas / 2] / 1_000_000.0, tempos[(int) Math.ceil(consultas * 0.95) - 1] / 1_000_000.0};
+    }
+
+    // Condição de cursor que o ProdutoDaoImpl.buscar gera a partir da segunda página
+    private static String cursor(Caso caso) {
+        if (!caso.filtro().isOrdenadoPorPreco())
+            return "ID > 0";
+        String preco = caso.filtro().getPrecoMin().toPlainString();
+        return "PRECO >= " + preco + " AND (PRECO > " + preco + " OR (PRECO = " + preco + " AND ID > 0))";
+    }
+
+    // Preço do cursor sorteado entre precoMin e precoMax, com os centavos dos preços semeados
+    private BigDecimal precoApos(ProdutoFiltro filtro) {
+        if (!filtro.isOrdenadoPorPreco())
+            return null;
+        int min = filtro.getPrecoMin().movePointRight(2).intValueExact();
+        int max = filtro.getPrecoMax().movePointRight(2).intValueExact();
+        return BigDecimal.valueOf(min + random.nextInt(max - min + 1), 2);
+    }
+
+    // Insere os IDs (de, ate] em lotes JDBC; mesma distribuição de valores do CatalogoBenchmark
+    private void semear(int de, int ate) {
+        Timestamp agora = Timestamp.from(Instant.now());
+        for (int inicio = de; inicio < ate; inicio += BLOCO) {
+            List<Object[]> linhas = new ArrayList<>(BLOCO);
+            for (int id = inicio + 1; id <= Math.min(inicio + BLOCO, ate); id++)
+                linhas.add(new Object[]{id, NOMES[random.nextInt(NOMES.length)] + " " + id, "Tipo " + random.nextInt(20),
+                        Setor.values()[random.nextInt(Setor.values().length)].name(), random.nextInt(5) + "kg",
+                        BigDecimal.valueOf(100 + random.nextInt(10_000), 2), agora});
+            jdbc.batchUpdate("INSERT INTO CM_TB_PRODUTO (ID, NOME, TIPO, SETOR, TAMANHO, PRECO, VERSAO, ATUALIZADO_EM, SEQ_ALTERACAO)"
+                    + " VALUES (?, ?, ?, ?, ?, ?, 0, ?, 0)", linhas);
+        }
+    }
+
+    private static ProdutoFiltro filtro(Setor setor, String tipo, String tamanho, String precoMin, String precoMax) {
+        return new ProdutoFiltro(setor, tipo, tamanho,
+                precoMin == null ? null : new BigDecimal(precoMin), precoMax == null ? null : new BigDecimal(precoMax));
+    }
+
+    private static String formatar(double valor) {
+        return String.format(Locale.ROOT, "%.3f", valor);
+    }
+
+    private static void gravar(Properties propriedades, Path arquivo) throws IOException {
+        Files.createDirectories(arquivo.getParent());
+        try (Writer writer = Files.newBufferedWriter(arquivo)) {
+            propriedades.store(writer, "calmarket benchmark da busca por filtros");
+        }
+    }
+}
@@ -0,0 +1,254 @@
+package br.com.fiap.calmarket.benchmark;
+
+import br.com.fiap.calmarket.dao.ProdutoDaoImpl;
+import br.com.fiap.calmarket.model.Produto;
+import br.com.fiap.calmarket.model.Setor;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.math.BigDecimal;
+import java.net.CookieManager;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// Rajada de cadastros contra a navegação no catálogo (mvn -Pbenchmark test -Dtest=CadastroBenchmark).
+// Mede o p99 de GET /produtos e /produtos/{id} sem cadastros e depois com calmarket.bench.cadastro.rajada
+// clientes enviando POST /signup sem parar. O BCrypt roda no pool limitado do CodificadorSenha: o excesso recebe
+// 503 com Retry-After (o cliente espera e tenta de novo) e o catálogo não pode passar de calmarket.bench.cadastro.fator vezes o p99 sem cadastros (folga mínima de 5 ms).
+// Grava target/benchmark/cadastro.properties. Roda com o pool de hash padrão: a fila que comporta a rajada e a cota
+// de CPU (calmarket.senha.fila e cota-cpu) é que deixam núcleo livre para o catálogo mesmo em máquina pequena.
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+@ActiveProfiles("bench")
+class CadastroBenchmark {
+
+    private static final String EMAIL = "admin@calmarket.com";
+    private static final String SENHA = "admin123";
+
+    @LocalServerPort
+    private int porta;
+
+    @Autowired
+    private ProdutoDaoImpl produtoDao;
+
+    @Value("${calmarket.bench.cadastro.produtos}")
+    private int quantidadeProdutos;
+
+    @Value("${calmarket.bench.cadastro.clientes}")
+    private int clientes;
+
+    @Value("${calmarket.bench.cadastro.rajada}")
+    private int rajada;
+
+    @Value("${calmarket.bench.aquecimento-s}")
+    private int aquecimento;
+
+    @Value("${calmarket.bench.cadastro.duracao-s}")
+    private int duracao;
+
+    @Value("${calmarket.bench.cadastro.fator}")
+    private double fator;
+
+    private final List<Integer> ids = new ArrayList<>();
+    private final AtomicInteger sequencia = new AtomicInteger();
+
+    @Test
+    void catalogoDuranteRajadaDeCadastros() throws Exception {
+        semear();
+        List<HttpClient> sessoes = new ArrayList<>();
+        for (int i = 0; i < clientes; i++) {
+            HttpClient http = HttpClient.newBuilder().cookieHandler(new CookieManager()).build();
+            assertThat(login(http)).as("login do cliente " + i).isTrue();
+            sessoes.add(http);
+        }
+
+        // O aquecimento com cadastros compila o /signup e o 503; sem ele o JIT entrava na conta da rajada.
+        // O segundo, sem cadastros, dá tempo de a fila de hash esvaziar antes da base
+        navegar(sessoes, aquecimento, rajada);
+        navegar(sessoes, aquecimento, 0);
+        Fase base = navegar(sessoes, duracao, 0);
+        Fase rajadaCadastros = navegar(sessoes, duracao, rajada);
+
+        double p99Base = base.catalogo.percentil(0.99);
+        double p99Rajada = rajadaCadastros.catalogo.percentil(0.99);
+        double limite = Math.max(p99Base * fator, p99Base + 5);
+
+        Properties resultado = new Properties();
+        resultado.setProperty("base.p50", formatar(base.catalogo.percentil(0.50)));
+        resultado.setProperty("base.p99", formatar(p99Base));
+        resultado.setProperty("base.vazao", formatar((double) base.catalogo.tamanho / duracao));
+        resultado.setProperty("rajada.p50", formatar(rajadaCadastros.catalogo.percentil(0.50)));
+        resultado.setProperty("rajada.p99", formatar(p99Rajada));
+        resultado.setProperty("rajada.vazao", formatar((double) rajadaCadastros.catalogo.tamanho / duracao));
+        resultado.setProperty("cadastros.aceitos", String.valueOf(rajadaCadastros.aceitos.get()));
+        resultado.setProperty("cadastros.recusados", String.valueOf(rajadaCadastros.recusados.get()));
+        System.out.println(String.format("%nCatálogo durante rajada de cadastros (%d clientes, %d cadastrando, %d produtos, %ds, %d CPUs)%n"
+                        + "%-10s %10s %9s %9s%n%-10s %10s %9s %9s%n%-10s %10s %9s %9s%n"
+                        + "cadastros: %d aceitos, %d recusados com 503, limite do p99 %.2f ms%n",
+                clientes, rajada, quantidadeProdutos, duracao, Runtime.getRuntime().availableProcessors(),
+                "fase", "req/s", "p50 ms", "p99 ms",
+                "base", resultado.get("base.vazao"), resultado.get("base.p50"), resultado.get("base.p99"),
+                "rajada", resultado.get("rajada.vazao"), resultado.get("rajada.p50"), resultado.get("rajada.p99"),
+                rajadaCadastros.aceitos.get(), rajadaCadastros.recusados.get(), limite));
+        gravar(resultado, Path.of(System.getProperty("benchmark.diretorio", ".")).resolve("target/benchmark/cadastro.properties"));
+
+        assertThat(base.erros.get() + rajadaCadastros.erros.get()).as("requisições com erro").isZero();
+        assertThat(rajadaCadastros.aceitos.get()).as("cadastros aceitos durante a rajada").isPositive();
+        assertThat(p99Rajada).as("p99 do catálogo durante a rajada (sem cadastros: " + formatar(p99Base) + " ms)")
+                .isLessThanOrEqualTo(limite);
+    }
+
+    private void semear() {
+        Random random = new Random(42);
+        List<Produto> bloco = new ArrayList<>();
+        for (int i = 0; i < quantidadeProdutos; i++) {
+            Produto produto = new Produto();
+            produto.setNome("Produto " + i);
+            produto.setTipo("Tipo " + random.nextInt(20));
+            produto.setSetor(Setor.values()[random.nextInt(Setor.values().length)]);
+            produto.setTamanho(random.nextInt(5) + "kg");
+            produto.setPreco(BigDecimal.valueOf(100 + random.nextInt(10_000), 2));
+            bloco.add(produto);
+            if (bloco.size() == 1000 || i == quantidadeProdutos - 1) {
+                produtoDao.cadastrarLote(bloco).forEach(p -> ids.add(p.getId()));
+                bloco = new ArrayList<>();
+            }
+        }
+    }
+
+    // Clientes logados navegando no catálogo por "segundos"; com "cadastrando" > 0, outros tantos enviam /signup
+    private Fase navegar(List<HttpClient> sessoes, int segundos, int cadastrando) throws Exception {
+        Fase fase = new Fase();
+        long fim = System.nanoTime() + TimeUnit.SECONDS.toNanos(segundos);
+        ExecutorService executor = Executors.newFixedThreadPool(sessoes.size() + cadastrando);
+        try {
+            List<Future<?>> futuros = new ArrayList<>();
+            for (HttpClient http : sessoes)
+                futuros.add(executor.submit(() -> ler(http, fim, fase)));
+            HttpClient semSessao = HttpClient.newHttpClient();
+            for (int i = 0; i < cadastrando; i++)
+                futuros.add(executor.submit(() -> cadastrar(semSessao, fim, fase)));
+            for (Future<?> futuro : futuros)
+                futuro.get();
+            fase.catalogo.ordenar();
+            return fase;
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private Void ler(HttpClient http, long fim, Fase fase) throws Exception {
+        Random random = new Random();
+        Amostras amostras = new Amostras();
+        while (System.nanoTime() < fim) {
+            int id = ids.get(random.nextInt(ids.size()));
+            String caminho = random.nextBoolean() ? "/produtos/" + id : "/produtos?limit=50&after=" + id;
+            long inicio = System.nanoTime();
+            int status = http.send(HttpRequest.newBuilder(uri(caminho)).GET().build(), HttpResponse.BodyHandlers.discarding())
+                    .statusCode();
+            amostras.adicionar(System.nanoTime() - inicio);
+            if (status != 200)
+                fase.erros.incrementAndGet();
+        }
+        synchronized (fase) {
+            fase.catalogo.somar(amostras);
+        }
+        return null;
+    }
+
+    // 302 para /login (o redirecionamento do AuthController, sem jsessionid): cadastrado; 503: pool de hash cheio,
+    // o cliente espera o Retry-After e tenta outro cadastro
+    private Void cadastrar(HttpClient http, long fim, Fase fase) throws Exception {
+        while (System.nanoTime() < fim) {
+            int n = sequencia.incrementAndGet();
+            HttpResponse<Void> resposta = http.send(HttpRequest.newBuilder(uri("/signup"))
+                    .header("Content-Type", "application/x-www-form-urlencoded")
+                    .POST(HttpRequest.BodyPublishers.ofString("nome=Cliente+" + n + "&email=cliente" + n + "%40bench.com&senha=senha" + n))
+                    .build(), HttpResponse.BodyHandlers.discarding());
+            Optional<String> retryAfter = resposta.headers().firstValue("Retry-After");
+            if (resposta.statusCode() == 302 && resposta.headers().firstValue("Location").map(URI::create)
+                    .filter(destino -> "/login".equals(destino.getPath()) && destino.getQuery() == null).isPresent()) {
+                fase.aceitos.incrementAndGet();
+            } else if (resposta.statusCode() == 503 && retryAfter.isPresent()) {
+                fase.recusados.incrementAndGet();
+                Thread.sleep(Math.min(TimeUnit.SECONDS.toMillis(Long.parseLong(retryAfter.get())),
+                        TimeUnit.NANOSECONDS.toMillis(Math.max(0, fim - System.nanoTime()))));
+            } else {
+                fase.erros.incrementAndGet();
+            }
+        }
+        return null;
+    }
+
+    private boolean login(HttpClient cliente) throws Exception {
+        HttpResponse<Void> resposta = cliente.send(HttpRequest.newBuilder(uri("/login"))
+                .header("Content-Type", "application/x-www-form-urlencoded")
+                .POST(HttpRequest.BodyPublishers.ofString("username=" + EMAIL + "&password=" + SENHA))
+                .build(), HttpResponse.BodyHandlers.discarding());
+        return resposta.statusCode() == 302
+                && !resposta.headers().firstValue("Location").orElse("").contains("error");
+    }
+
+    private URI uri(String caminho) {
+        return URI.create("http://localhost:" + porta + caminho);
+    }
+
+    private static class Fase {
+        private final Amostras catalogo = new Amostras();
+        private final AtomicInteger erros = new AtomicInteger();
+        private final AtomicInteger aceitos = new AtomicInteger();
+        private final AtomicInteger recusados = new AtomicInteger();
+    }
+
+    // Latências em nanossegundos
+    private static class Amostras {
+        private long[] valores = new long[1024];
+        private int tamanho;
+
+        void adicionar(long valor) {
+            if (tamanho == valores.length)
+                valores = Arrays.copyOf(valores, tamanho * 2);
+            valores[tamanho++] = valor;
+        }
+
+        void somar(Amostras outras) {
+            for (int i = 0; i < outras.tamanho; i++)
+                adicionar(outras.valores[i]);
+        }
+
+        // Percentil em milissegundos (valores precisam estar ordenados)
+        double percentil(double p) {
+            int indice = Math.max(0, (int) Math.ceil(p * tamanho) - 1);
+            return valores[indice] / 1_000_000.0;
+        }
+
+        void ordenar() {
+            Arrays.sort(valores, 0, tamanho);
+        }
+    }
+
+    private static String formatar(double valor) {
+        return String.format(Locale.ROOT, "%.2f", valor);
+    }
+
+    private static void gravar(Properties propriedades, Path arquivo) throws IOException {
+        Files.createDirectories(arquivo.getParent());
+        try (Writer writer = Files.newBufferedWriter(arquivo)) {
+            propriedades.store(writer, "calmarket benchmark da rajada de cadastros");
+        }
+    }
+}
@@ -0,0 +1,434 @@
+package br.com.fiap.calmarket.benchmark;
+
+import br.com.fiap.calmarket.config.OrcamentoSqlFilter;
+import br.com.fiap.calmarket.dao.ProdutoDaoImpl;
+import br.com.fiap.calmarket.model.Produto;
+import br.com.fiap.calmarket.model.Setor;
+import br.com.fiap.calmarket.service.IndiceSugestoes;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.io.Writer;
+import java.math.BigDecimal;
+import java.net.CookieManager;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.*;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// Teste de carga com mistura de operações da API (mvn -Pbenchmark test).
+// Mede vazão e percentis por operação, grava em target/benchmark e compara com o baseline em src/test/resources/benchmark.
+//   -Dspring.profiles.include=virtual   roda no modo virtual threads (o relatório compara com o último resultado do outro modo)
+//   -Dbenchmark.gravarBaseline=true     grava o resultado atual como novo baseline
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+@ActiveProfiles("bench")
+class CatalogoBenchmark {
+
+    private static final String EMAIL = "admin@calmarket.com";
+    private static final String SENHA = "admin123";
+    private static final String[] NOMES = {"Arroz", "Feijão", "Detergente", "Pão", "Maçã", "Suco", "Faca", "Café"};
+
+    enum Operacao {
+        LISTAR(30), BUSCAR(30), FILTRAR(5), SUGERIR(5), CADASTRAR(10), ATUALIZAR(10), REMOVER(8), LOGIN(2);
+
+        final int peso;
+
+        Operacao(int peso) {
+            this.peso = peso;
+        }
+
+        String chave() {
+            return name().toLowerCase();
+        }
+    }
+
+    @LocalServerPort
+    private int porta;
+
+    @Autowired
+    private ProdutoDaoImpl produtoDao;
+
+    @Autowired
+    private ObjectMapper mapper;
+
+    @Autowired
+    private IndiceSugestoes indiceSugestoes;
+
+    @Value("${calmarket.bench.produtos}")
+    private int quantidadeProdutos;
+
+    @Value("${calmarket.bench.clientes}")
+    private int clientes;
+
+    @Value("${calmarket.bench.aquecimento-s}")
+    private int aquecimento;
+
+    @Value("${calmarket.bench.duracao-s}")
+    private int duracao;
+
+    @Value("${calmarket.bench.tolerancia}")
+    private double tolerancia;
+
+    @Value("${calmarket.bench.verificar-sql}")
+    private boolean verificarSql;
+
+    @Value("${spring.threads.virtual.enabled:false}")
+    private boolean virtual;
+
+    private final List<Integer> idsSemeados = new ArrayList<>();
+    private final ConcurrentLinkedQueue<Integer> idsCriados = new ConcurrentLinkedQueue<>();
+    // Logins avulsos, sem guardar cookie de sessão
+    private final HttpClient semSessao = HttpClient.newHttpClient();
+
+    @Test
+    void cargaMista() throws Exception {
+        semear();
+        aguardarIndice();
+        executar(aquecimento);
+        Resultado resultado = executar(duracao);
+
+        String modo = virtual ? "virtual" : "plataforma";
+        Path diretorio = Path.of(System.getProperty("benchmark.diretorio", "."));
+        Path saida = diretorio.resolve("target/benchmark/resultado-" + modo + ".properties");
+        Path baseline = diretorio.resolve("src/test/resources/benchmark/baseline-" + modo + ".properties");
+
+        System.out.println(resultado.relatorio("Benchmark calmarket (" + modo + ", " + clientes + " clientes, "
+                + quantidadeProdutos + " produtos, " + duracao + "s)"));
+        gravar(resultado.propriedades(), saida);
+        compararModos(resultado, diretorio.resolve("target/benchmark/resultado-"
+                + (virtual ? "plataforma" : "virtual") + ".properties"), modo);
+
+        assertThat(resultado.erros).as("requisições com erro").isZero();
+        if (verificarSql)
+            assertThat(estourosOrcamentoSql()).as("endpoints acima do orçamento de SQL").isEmpty();
+        if (Boolean.getBoolean("benchmark.gravarBaseline")) {
+            gravar(resultado.propriedades(), baseline);
+            return;
+        }
+        if (!Files.exists(baseline)) {
+            System.out.println("Sem baseline em " + baseline + " (use -Dbenchmark.gravarBaseline=true)");
+            return;
+        }
+        assertThat(regressoes(resultado.propriedades(), ler(baseline))).as("regressões em relação ao baseline").isEmpty();
+    }
+
+    // Cada endpoint é chamado logo após um cadastro (caches de listagem invalidados) e o X-SQL-Count é comparado ao orçamento
+    private List<String> estourosOrcamentoSql() throws Exception {
+        Properties orcamentos = new Properties();
+        try (Reader reader = new InputStreamReader(
+                new ClassPathResource("benchmark/orcamento-sql.properties").getInputStream(), StandardCharsets.UTF_8)) {
+            orcamentos.load(reader);
+        }
+        Cliente cliente = new Cliente();
+        login(cliente.http);
+        List<String> estouros = new ArrayList<>();
+        for (String caminho : orcamentos.stringPropertyNames()) {
+            cliente.executar(Operacao.CADASTRAR);
+            HttpResponse<String> resposta = cliente.get(caminho);
+            int statements = Integer.parseInt(resposta.headers().firstValue(OrcamentoSqlFilter.CABECALHO_QUANTIDADE).orElse("-1"));
+            int limite = Integer.parseInt(orcamentos.getProperty(caminho));
+            System.out.println("SQL " + caminho + ": " + statements + " statements (orçamento " + limite + ")");
+            if (statements < 0 || statements > limite)
+                estouros.add(caminho + ": " + statements + " statements (orçamento " + limite + ")");
+        }
+        return estouros;
+    }
+
+    private void semear() {
+        Random random = new Random(42);
+        List<Produto> bloco = new ArrayList<>();
+        for (int i = 0; i < quantidadeProdutos; i++) {
+            bloco.add(produto(random, i));
+            if (bloco.size() == 1000 || i == quantidadeProdutos - 1) {
+                produtoDao.cadastrarLote(bloco).forEach(p -> idsSemeados.add(p.getId()));
+                bloco = new ArrayList<>();
+            }
+        }
+    }
+
+    // A carga inicial do índice de sugestões roda em segundo plano; até terminar o autocomplete responde 503
+    private void aguardarIndice() throws InterruptedException {
+        long limite = System.nanoTime() + TimeUnit.MINUTES.toNanos(1);
+        while (!indiceSugestoes.pronto() && System.nanoTime() < limite)
+            Thread.sleep(50);
+        assertThat(indiceSugestoes.pronto()).as("índice de sugestões carregado").isTrue();
+    }
+
+    private static Produto produto(Random random, int i) {
+        Produto produto = new Produto();
+        produto.setNome(NOMES[random.nextInt(NOMES.length)] + " " + i);
+        produto.setTipo("Tipo " + random.nextInt(20));
+        produto.setSetor(Setor.values()[random.nextInt(Setor.values().length)]);
+        produto.setTamanho(random.nextInt(5) + "kg");
+        produto.setPreco(BigDecimal.valueOf(100 + random.nextInt(10_000), 2));
+        return produto;
+    }
+
+    private Resultado executar(int segundos) throws Exception {
+        long fim = System.nanoTime() + TimeUnit.SECONDS.toNanos(segundos);
+        ExecutorService executor = Executors.newFixedThreadPool(clientes);
+        try {
+            List<Future<Cliente>> futuros = new ArrayList<>();
+            for (int i = 0; i < clientes; i++)
+                futuros.add(executor.submit(() -> new Cliente().rodar(fim)));
+
+            Resultado resultado = new Resultado(segundos);
+            for (Future<Cliente> futuro : futuros)
+                resultado.somar(futuro.get());
+            return resultado;
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    // Um usuário logado (sessão própria) disparando operações sorteadas pelo peso
+    private class Cliente {
+        private final HttpClient http = HttpClient.newBuilder().cookieHandler(new CookieManager()).build();
+        private final Random random = new Random();
+        private final EnumMap<Operacao, Amostras> amostras = new EnumMap<>(Operacao.class);
+        private int erros;
+
+        Cliente rodar(long fim) throws Exception {
+            if (!login(http))
+                throw new IllegalStateException("login falhou");
+            int pesoTotal = Arrays.stream(Operacao.values()).mapToInt(o -> o.peso).sum();
+
+            while (System.nanoTime() < fim) {
+                Operacao operacao = sortear(random.nextInt(pesoTotal));
+                long inicio = System.nanoTime();
+                Boolean ok = executar(operacao);
+                if (ok == null)
+                    continue;
+                amostras.computeIfAbsent(operacao, o -> new Amostras()).adicionar(System.nanoTime() - inicio);
+                if (!ok)
+                    erros++;
+            }
+            return this;
+        }
+
+        private Operacao sortear(int sorteio) {
+            for (Operacao operacao : Operacao.values()) {
+                sorteio -= operacao.peso;
+                if (sorteio < 0)
+                    return operacao;
+            }
+            return Operacao.LISTAR;
+        }
+
+        // null quando a operação não se aplica (ex.: nada para remover)
+        private Boolean executar(Operacao operacao) throws Exception {
+            int id = idsSemeados.get(random.nextInt(idsSemeados.size()));
+            switch (operacao) {
+                case LISTAR:
+                    return get("/produtos?limit=50" + (random.nextBoolean() ? "&after=" + id : "")).statusCode() == 200;
+                case BUSCAR:
+                    return get("/produtos/" + id).statusCode() == 200;
+                case FILTRAR:
+                    return get("/produtos/busca?setor=" + Setor.values()[random.nextInt(Setor.values().length)]
+                            + "&precoMax=" + (10 + random.nextInt(90)) + "&limit=50").statusCode() == 200;
+                case SUGERIR:
+                    return get("/produtos/sugestoes?q=" + NOMES[random.nextInt(3)].substring(0, 2)).statusCode() == 200;
+                case CADASTRAR: {
+                    HttpResponse<String> resposta = enviar("POST", "/produtos/cadastrar", json(null));
+                    if (resposta.statusCode() != 201)
+                        return false;
+                    idsCriados.add(mapper.readTree(resposta.body()).get("id").asInt());
+                    return true;
+                }
+                case ATUALIZAR: {
+                    // 409 é esperado quando dois clientes atualizam o mesmo produto ao mesmo tempo
+                    int status = enviar("PUT", "/produtos/" + id, json(id)).statusCode();
+                    return status == 200 || status == 409;
+                }
+                case REMOVER: {
+                    Integer criado = idsCriados.poll();
+                    if (criado == null)
+                        return null;
+                    return enviar("DELETE", "/produtos/" + criado, null).statusCode() == 204;
+                }
+                case LOGIN:
+                    return login(semSessao);
+                default:
+                    throw new IllegalArgumentException(operacao.name());
+            }
+        }
+
+        private String json(Integer id) throws IOException {
+            Produto produto = CatalogoBenchmark.produto(random, id == null ? random.nextInt(1_000_000) : id);
+            return mapper.writeValueAsString(Map.of(
+                    "nome", produto.getNome(), "tipo", produto.getTipo(), "setor", produto.getSetor(),
+                    "tamanho", produto.getTamanho(), "preco", produto.getPreco()));
+        }
+
+        private HttpResponse<String> get(String caminho) throws Exception {
+            return http.send(HttpRequest.newBuilder(uri(caminho)).GET().build(), HttpResponse.BodyHandlers.ofString());
+        }
+
+        private HttpResponse<String> enviar(String metodo, String caminho, String corpo) throws Exception {
+            HttpRequest.Builder requisicao = HttpRequest.newBuilder(uri(caminho)).header("Content-Type", "application/json");
+            requisicao.method(metodo, corpo == null ? HttpRequest.BodyPublishers.noBody() : HttpRequest.BodyPublishers.ofString(corpo));
+            return http.send(requisicao.build(), HttpResponse.BodyHandlers.ofString());
+        }
+    }
+
+    private boolean login(HttpClient cliente) throws Exception {
+        HttpResponse<Void> resposta = cliente.send(HttpRequest.newBuilder(uri("/login"))
+                .header("Content-Type", "application/x-www-form-urlencoded")
+                .POST(HttpRequest.BodyPublishers.ofString("username=" + EMAIL + "&password=" + SENHA))
+                .build(), HttpResponse.BodyHandlers.discarding());
+        return resposta.statusCode() == 302
+                && !resposta.headers().firstValue("Location").orElse("").contains("error");
+    }
+
+    private URI uri(String caminho) {
+        return URI.create("http://localhost:" + porta + caminho);
+    }
+
+    // Latências em nanossegundos de uma operação
+    private static class Amostras {
+        private long[] valores = new long[1024];
+        private int tamanho;
+
+        void adicionar(long valor) {
+            if (tamanho == valores.length)
+                valores = Arrays.copyOf(valores, tamanho * 2);
+            valores[tamanho++] = valor;
+        }
+
+        void somar(Amostras outras) {
+            for (int i = 0; i < outras.tamanho; i++)
+                adicionar(outras.valores[i]);
+        }
+
+        // Percentil em milissegundos (valores precisam estar ordenados)
+        double percentil(double p) {
+            int indice = Math.max(0, (int) Math.ceil(p * tamanho) - 1);
+            return valores[indice] / 1_000_000.0;
+        }
+
+        void ordenar() {
+            Arrays.sort(valores, 0, tamanho);
+        }
+    }
+
+    private static class Resultado {
+        private final int segundos;
+        private final EnumMap<Operacao, Amostras> amostras = new EnumMap<>(Operacao.class);
+        private int erros;
+
+        Resultado(int segundos) {
+            this.segundos = segundos;
+        }
+
+        void somar(Cliente cliente) {
+            cliente.amostras.forEach((operacao, a) -> amostras.computeIfAbsent(operacao, o -> new Amostras()).somar(a));
+            erros += cliente.erros;
+        }
+
+        Properties propriedades() {
+            Properties propriedades = new Properties();
+            long total = 0;
+            for (Map.Entry<Operacao, Amostras> entrada : amostras.entrySet()) {
+                Amostras a = entrada.getValue();
+                a.ordenar();
+                String chave = entrada.getKey().chave();
+                propriedades.setProperty(chave + ".vazao", formatar((double) a.tamanho / segundos));
+                propriedades.setProperty(chave + ".p50", formatar(a.percentil(0.50)));
+                propriedades.setProperty(chave + ".p95", formatar(a.percentil(0.95)));
+                propriedades.setProperty(chave + ".p99", formatar(a.percentil(0.99)));
+                propriedades.setProperty(chave + ".max", formatar(a.percentil(1.0)));
+                total += a.tamanho;
+            }
+            propriedades.setProperty("total.vazao", formatar((double) total / segundos));
+            propriedades.setProperty("erros", String.valueOf(erros));
+            return propriedades;
+        }
+
+        String relatorio(String titulo) {
+            Properties p = propriedades();
+            StringBuilder sb = new StringBuilder("\n").append(titulo).append('\n');
+            sb.append(String.format("%-10s %10s %9s %9s %9s %9s%n", "operacao", "req/s", "p50 ms", "p95 ms", "p99 ms", "max ms"));
+            for (Operacao operacao : amostras.keySet()) {
+                String c = operacao.chave();
+                sb.append(String.format("%-10s %10s %9s %9s %9s %9s%n", c, p.get(c + ".vazao"),
+                        p.get(c + ".p50"), p.get(c + ".p95"), p.get(c + ".p99"), p.get(c + ".max")));
+            }
+            return sb.append(String.format("%-10s %10s   erros: %s%n", "total", p.get("total.vazao"), erros)).toString();
+        }
+    }
+
+    private void compararModos(Resultado resultado, Path outro, String modo) throws IOException {
+        if (!Files.exists(outro))
+            return;
+        Properties atual = resultado.propriedades();
+        Properties anterior = ler(outro);
+        String outroModo = virtual ? "plataforma" : "virtual";
+        StringBuilder sb = new StringBuilder("\nComparação (" + outroModo + " x " + modo + ")\n");
+        sb.append(String.format("%-10s %14s %14s %14s %14s%n", "operacao",
+                "req/s " + outroModo.substring(0, 4), "req/s " + modo.substring(0, 4),
+                "p99 " + outroModo.substring(0, 4), "p99 " + modo.substring(0, 4)));
+        for (Operacao operacao : Operacao.values()) {
+            String c = operacao.chave();
+            if (atual.containsKey(c + ".p99") && anterior.containsKey(c + ".p99"))
+                sb.append(String.format("%-10s %14s %14s %14s %14s%n", c, anterior.get(c + ".vazao"), atual.get(c + ".vazao"),
+                        anterior.get(c + ".p99"), atual.get(c + ".p99")));
+        }
+        sb.append(String.format("%-10s %14s %14s%n", "total", anterior.get("total.vazao"), atual.get("total.vazao")));
+        System.out.println(sb);
+    }
+
+    // p95 de cada operação pode subir até a tolerância (com folga mínima de 2 ms); a vazão total pode cair até a tolerância.
+    // O p99 fica só no relatório: com poucas amostras por operação ele é praticamente o máximo e varia demais
+    private List<String> regressoes(Properties atual, Properties baseline) {
+        List<String> regressoes = new ArrayList<>();
+        for (String chave : baseline.stringPropertyNames()) {
+            if (!chave.endsWith(".p95") || !atual.containsKey(chave))
+                continue;
+            double base = Double.parseDouble(baseline.getProperty(chave));
+            double medido = Double.parseDouble(atual.getProperty(chave));
+            if (medido > Math.max(base * (1 + tolerancia), base + 2))
+                regressoes.add(chave + ": " + medido + " ms (baseline " + base + " ms)");
+        }
+        double base = Double.parseDouble(baseline.getProperty("total.vazao", "0"));
+        double medido = Double.parseDouble(atual.getProperty("total.vazao"));
+        if (medido < base * (1 - tolerancia))
+            regressoes.add("total.vazao: " + medido + " req/s (baseline " + base + " req/s)");
+        return regressoes;
+    }
+
+    private static String formatar(double valor) {
+        return String.format(Locale.ROOT, "%.2f", valor);
+    }
+
+    private static Properties ler(Path arquivo) throws IOException {
+        Properties propriedades = new Properties();
+        try (Reader reader = Files.newBufferedReader(arquivo)) {
+            propriedades.load(reader);
+        }
+        return propriedades;
+    }
+
+    private static void gravar(Properties propriedades, Path arquivo) throws IOException {
+        Files.createDirectories(arquivo.getParent());
+        try (Writer writer = Files.newBufferedWriter(arquivo)) {
+            propriedades.store(writer, "calmarket benchmark");
+        }
+    }
+}
@@ -0,0 +1,133 @@
+package br.com.fiap.calmarket.benchmark;
+
+import br.com.fiap.calmarket.controller.ProdutoController;
+import br.com.fiap.calmarket.controller.ProdutoModelAssembler;
+import br.com.fiap.calmarket.model.Produto;
+import br.com.fiap.calmarket.model.Setor;
+import org.junit.jupiter.api.Test;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.results.Result;
+import org.openjdk.jmh.results.RunResult;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.openjdk.jmh.runner.options.TimeValue;
+import org.springframework.hateoas.EntityModel;
+import org.springframework.hateoas.server.core.DefaultLinkRelationProvider;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.hateoas.server.mvc.WebMvcLinkBuilder.linkTo;
+import static org.springframework.hateoas.server.mvc.WebMvcLinkBuilder.methodOn;
+
+// Montagem dos links de um produto (GET /produtos/{id}) com JMH (mvn -Pbenchmark test -Dtest=LinksBenchmark):
+// ProdutoModelAssembler contra o linkTo(methodOn(...)) usado antes dele. Mede tempo médio e bytes alocados por
+// operação (GCProfiler), grava target/benchmark/links.properties e falha se o assembler não ganhar nos dois.
+// Pública porque o JMH gera, no subpacote jmh_generated, classes que estendem Links.
+public class LinksBenchmark {
+
+    @State(Scope.Thread)
+    @BenchmarkMode(Mode.AverageTime)
+    @OutputTimeUnit(TimeUnit.NANOSECONDS)
+    public static class Links {
+
+        private ProdutoModelAssembler assembler;
+        private Produto produto;
+
+        // Os links são montados a partir da requisição atual, guardada por thread
+        @Setup
+        public void preparar() {
+            RequestContextHolder.setRequestAttributes(new ServletRequestAttributes(new MockHttpServletRequest("GET", "/produtos/42")));
+            assembler = new ProdutoModelAssembler(new DefaultLinkRelationProvider());
+            produto = new Produto();
+            produto.setId(42);
+            produto.setNome("Arroz 42");
+            produto.setTipo("Grão");
+            produto.setSetor(Setor.ALIMENTOS);
+            produto.setTamanho("1kg");
+            produto.setPreco(BigDecimal.TEN);
+        }
+
+        @TearDown
+        public void limpar() {
+            RequestContextHolder.resetRequestAttributes();
+        }
+
+        @Benchmark
+        public EntityModel<Produto> assembler() {
+            return assembler.toModel(produto);
+        }
+
+        // Código de procurarPorId antes do ProdutoModelAssembler
+        @Benchmark
+        public EntityModel<Produto> linkToMethodOn() {
+            int id = produto.getId();
+            return EntityModel.of(produto,
+                    linkTo(methodOn(ProdutoController.class).procurarPorId(id, null)).withSelfRel(),
+                    linkTo(methodOn(ProdutoController.class).listar(null, null, null)).withRel("lista"),
+                    linkTo(methodOn(ProdutoController.class).removerPorId(id)).withRel("delete"),
+                    linkTo(methodOn(ProdutoController.class).atualizar(id, produto, null)).withRel("update")
+            );
+        }
+    }
+
+    @Test
+    void montagemDeLinks() throws Exception {
+        Options opcoes = new OptionsBuilder()
+                .include(LinksBenchmark.class.getSimpleName() + "\\.Links\\.")
+                .warmupIterations(Integer.getInteger("calmarket.bench.links.aquecimento", 3))
+                .warmupTime(TimeValue.seconds(1))
+                .measurementIterations(Integer.getInteger("calmarket.bench.links.iteracoes", 5))
+                .measurementTime(TimeValue.seconds(1))
+                .forks(1)
+                .addProfiler(GCProfiler.class)
+                .build();
+
+        Map<String, double[]> medidas = new TreeMap<>();
+        for (RunResult resultado : new Runner(opcoes).run()) {
+            String nome = resultado.getParams().getBenchmark();
+            nome = nome.substring(nome.lastIndexOf('.') + 1);
+            medidas.put(nome, new double[]{resultado.getPrimaryResult().getScore(), alocacao(resultado)});
+        }
+
+        Properties propriedades = new Properties();
+        StringBuilder relatorio = new StringBuilder(String.format("%nLinks de GET /produtos/{id}%n%-16s %12s %12s%n", "", "ns/op", "B/op"));
+        medidas.forEach((nome, valores) -> {
+            propriedades.setProperty(nome + ".ns", String.format(Locale.ROOT, "%.1f", valores[0]));
+            propriedades.setProperty(nome + ".bytes", String.format(Locale.ROOT, "%.0f", valores[1]));
+            relatorio.append(String.format("%-16s %12.1f %12.0f%n", nome, valores[0], valores[1]));
+        });
+        System.out.println(relatorio);
+        gravar(propriedades, Path.of(System.getProperty("benchmark.diretorio", ".")).resolve("target/benchmark/links.properties"));
+
+        double[] assembler = medidas.get("assembler");
+        double[] antigo = medidas.get("linkToMethodOn");
+        assertThat(assembler[0]).as("ns/op do assembler contra linkTo(methodOn)").isLessThan(antigo[0]);
+        assertThat(assembler[1]).as("B/op do assembler contra linkTo(methodOn)").isLessThan(antigo[1]);
+    }
+
+    // Bytes alocados por operação; o nome da métrica mudou entre versões do JMH
+    private static double alocacao(RunResult resultado) {
+        Map<String, Result> secundarios = resultado.getSecondaryResults();
+        Result alocado = secundarios.getOrDefault("gc.alloc.rate.norm", secundarios.get("·gc.alloc.rate.norm"));
+        return alocado != null ? alocado.getScore() : Double.NaN;
+    }
+
+    private static void gravar(Properties propriedades, Path arquivo) throws IOException {
+        Files.createDirectories(arquivo.getParent());
+        try (Writer writer = Files.newBufferedWriter(arquivo)) {
+            propriedades.store(writer, "calmarket benchmark da montagem de links");
+        }
+    }
+}
@@ -0,0 +1,222 @@
+package br.com.fiap.calmarket.benchmark;
+
+import br.com.fiap.calmarket.dao.UsuarioDao;
+import br.com.fiap.calmarket.model.Role;
+import br.com.fiap.calmarket.model.Usuario;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// Tempestade de logins (mvn -Pbenchmark test -Dtest=LoginBenchmark): calmarket.bench.login.clientes clientes enviando
+// POST /login sem parar, sorteando entre calmarket.bench.login.usuarios usuários, como na troca de turno.
+// Mede a vazão de logins aceitos, o p50/p99 dos aceitos e dos recusados com 503 (pool de hash cheio ou espera-ms
+// esgotado; o cliente espera o Retry-After e tenta de novo) e quantas vezes o usuário foi buscado no banco.
+// Grava target/benchmark/login.properties. Falha se alguma resposta não for login aceito ou 503 com Retry-After,
+// se alguma passar de calmarket.senha.espera-ms (com folga de 1 s) ou se houver mais consultas do usuário no banco
+// que usuários mais 10% (o cache de UserDetails vale 60 s, mais que o benchmark inteiro; a folga cobre logins
+// simultâneos do mesmo usuário ainda fora do cache). Sem o cache seria uma consulta por tentativa.
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+@ActiveProfiles("bench")
+class LoginBenchmark {
+
+    private static final String SENHA = "senha-bench";
+    private static final String CONSULTA_USUARIO = "SELECT u FROM Usuario u WHERE u.email = :email";
+
+    @LocalServerPort
+    private int porta;
+
+    @Autowired
+    private UsuarioDao usuarioDao;
+
+    @Autowired
+    private PasswordEncoder passwordEncoder;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Value("${calmarket.bench.login.usuarios}")
+    private int usuarios;
+
+    @Value("${calmarket.bench.login.clientes}")
+    private int clientes;
+
+    @Value("${calmarket.bench.aquecimento-s}")
+    private int aquecimento;
+
+    @Value("${calmarket.bench.login.duracao-s}")
+    private int duracao;
+
+    @Value("${calmarket.senha.espera-ms}")
+    private long esperaMs;
+
+    @Test
+    void tempestadeDeLogins() throws Exception {
+        semear();
+        Statistics estatisticas = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        long consultasAntes = estatisticas.getQueryStatistics(CONSULTA_USUARIO).getExecutionCount();
+
+        logar(aquecimento);
+        Fase fase = logar(duracao);
+        long consultas = estatisticas.getQueryStatistics(CONSULTA_USUARIO).getExecutionCount() - consultasAntes;
+
+        Properties resultado = new Properties();
+        resultado.setProperty("aceitos", String.valueOf(fase.aceitos.tamanho));
+        resultado.setProperty("aceitos.vazao", formatar((double) fase.aceitos.tamanho / duracao));
+        resultado.setProperty("aceitos.p50", formatar(fase.aceitos.percentil(0.50)));
+        resultado.setProperty("aceitos.p99", formatar(fase.aceitos.percentil(0.99)));
+        resultado.setProperty("recusados", String.valueOf(fase.recusados.tamanho));
+        resultado.setProperty("recusados.p50", formatar(fase.recusados.percentil(0.50)));
+        resultado.setProperty("recusados.p99", formatar(fase.recusados.percentil(0.99)));
+        resultado.setProperty("consultas.usuario", String.valueOf(consultas));
+        System.out.println(String.format("%nTempestade de logins (%d clientes, %d usuários, %ds, %d CPUs)%n"
+                        + "%-10s %10s %9s %9s%n%-10s %10s %9s %9s%n%-10s %10s %9s %9s%n"
+                        + "logins aceitos por segundo: %s; consultas do usuário no banco: %d (aquecimento e medição)%n",
+                clientes, usuarios, duracao, Runtime.getRuntime().availableProcessors(),
+                "resposta", "total", "p50 ms", "p99 ms",
+                "aceito", resultado.get("aceitos"), resultado.get("aceitos.p50"), resultado.get("aceitos.p99"),
+                "503", resultado.get("recusados"), resultado.get("recusados.p50"), resultado.get("recusados.p99"),
+                resultado.get("aceitos.vazao"), consultas));
+        gravar(resultado, Path.of(System.getProperty("benchmark.diretorio", ".")).resolve("target/benchmark/login.properties"));
+
+        assertThat(fase.erros.get()).as("respostas que não foram login aceito nem 503 com Retry-After").isZero();
+        assertThat(fase.aceitos.tamanho).as("logins aceitos").isPositive();
+        assertThat(Math.max(fase.aceitos.percentil(1), fase.recusados.percentil(1)))
+                .as("resposta mais lenta (espera-ms %d)", esperaMs).isLessThanOrEqualTo(esperaMs + 1_000);
+        assertThat(consultas).as("consultas do usuário no banco").isLessThanOrEqualTo(usuarios + usuarios / 10);
+    }
+
+    // Todos com a mesma senha: um hash só, em vez de um por usuário passando pelo pool
+    private void semear() {
+        String hash = passwordEncoder.encode(SENHA);
+        for (int i = 0; i < usuarios; i++)
+            usuarioDao.cadastrar(new Usuario(null, "Usuário " + i, email(i), hash, Role.CLIENTE));
+    }
+
+    private Fase logar(int segundos) throws Exception {
+        Fase fase = new Fase();
+        long fim = System.nanoTime() + TimeUnit.SECONDS.toNanos(segundos);
+        ExecutorService executor = Executors.newFixedThreadPool(clientes);
+        try {
+            // Sem CookieManager: cada login abre uma sessão nova, como um navegador chegando
+            HttpClient http = HttpClient.newHttpClient();
+            List<Future<?>> futuros = new ArrayList<>();
+            for (int i = 0; i < clientes; i++)
+                futuros.add(executor.submit(() -> logar(http, fim, fase)));
+            for (Future<?> futuro : futuros)
+                futuro.get();
+            fase.aceitos.ordenar();
+            fase.recusados.ordenar();
+            return fase;
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    // 302 sem "error": login aceito; 503 com Retry-After: pool de hash cheio, o cliente espera e tenta de novo
+    private Void logar(HttpClient http, long fim, Fase fase) throws Exception {
+        Random random = new Random();
+        Amostras aceitos = new Amostras();
+        Amostras recusados = new Amostras();
+        while (System.nanoTime() < fim) {
+            long inicio = System.nanoTime();
+            HttpResponse<Void> resposta = http.send(HttpRequest.newBuilder(uri("/login"))
+                    .header("Content-Type", "application/x-www-form-urlencoded")
+                    .POST(HttpRequest.BodyPublishers.ofString("username=" + URLEncoder.encode(email(random.nextInt(usuarios)), StandardCharsets.UTF_8)
+                            + "&password=" + SENHA))
+                    .build(), HttpResponse.BodyHandlers.discarding());
+            long tempo = System.nanoTime() - inicio;
+            Optional<String> retryAfter = resposta.headers().firstValue("Retry-After");
+            if (resposta.statusCode() == 302 && !resposta.headers().firstValue("Location").orElse("error").contains("error")) {
+                aceitos.adicionar(tempo);
+            } else if (resposta.statusCode() == 503 && retryAfter.isPresent()) {
+                recusados.adicionar(tempo);
+                Thread.sleep(Math.min(TimeUnit.SECONDS.toMillis(Long.parseLong(retryAfter.get())),
+                        TimeUnit.NANOSECONDS.toMillis(Math.max(0, fim - System.nanoTime()))));
+            } else {
+                fase.erros.incrementAndGet();
+            }
+        }
+        synchronized (fase) {
+            fase.aceitos.somar(aceitos);
+            fase.recusados.somar(recusados);
+        }
+        return null;
+    }
+
+    private static String email(int i) {
+        return "usuario" + i + "@bench.com";
+    }
+
+    private URI uri(String caminho) {
+        return URI.create("http://localhost:" + porta + caminho);
+    }
+
+    private static class Fase {
+        private final Amostras aceitos = new Amostras();
+        private final Amostras recusados = new Amostras();
+        private final AtomicInteger erros = new AtomicInteger();
+    }
+
+    // Latências em nanossegundos
+    private static class Amostras {
+        private long[] valores = new long[1024];
+        private int tamanho;
+
+        void adicionar(long valor) {
+            if (tamanho == valores.length)
+                valores = Arrays.copyOf(valores, tamanho * 2);
+            valores[tamanho++] = valor;
+        }
+
+        void somar(Amostras outras) {
+            for (int i = 0; i < outras.tamanho; i++)
+                adicionar(outras.valores[i]);
+        }
+
+        // Percentil em milissegundos (valores precisam estar ordenados); zero sem amostras
+        double percentil(double p) {
+            if (tamanho == 0)
+                return 0;
+            int indice = Math.max(0, (int) Math.ceil(p * tamanho) - 1);
+            return valores[indice] / 1_000_000.0;
+        }
+
+        void ordenar() {
+            Arrays.sort(valores, 0, tamanho);
+        }
+    }
+
+    private static String formatar(double valor) {
+        return String.format(Locale.ROOT, "%.2f", valor);
+    }
+
+    private static void gravar(Properties propriedades, Path arquivo) throws IOException {
+        Files.createDirectories(arquivo.getParent());
+        try (Writer writer = Files.newBufferedWriter(arquivo)) {
+            propriedades.store(writer, "calmarket benchmark da tempestade de logins");
+        }
+    }
+}
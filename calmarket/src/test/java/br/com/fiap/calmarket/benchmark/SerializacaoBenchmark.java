@@ -0,0 +1,176 @@
+package br.com.fiap.calmarket.benchmark;
+
+import br.com.fiap.calmarket.controller.ProdutoModelAssembler;
+import br.com.fiap.calmarket.model.Produto;
+import br.com.fiap.calmarket.model.Setor;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.hateoas.Link;
+import org.springframework.hateoas.MediaTypes;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.http.converter.json.AbstractJackson2HttpMessageConverter;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+import org.springframework.web.servlet.mvc.method.annotation.RequestMappingHandlerAdapter;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.Writer;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.*;
+import java.util.zip.GZIPOutputStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// Custo de serialização e bytes na rede de uma listagem de 10 mil produtos em JSON (HAL), CBOR e Smile (mvn -Pbenchmark test).
+// Usa os mesmos conversores registrados no Spring MVC e grava o resultado em target/benchmark/serializacao.properties.
+//   lista  -> formato de GET /produtos (links só da coleção)
+//   itens  -> cada produto com os próprios _links, como em GET /produtos/{id}
+@SpringBootTest
+@ActiveProfiles("bench")
+class SerializacaoBenchmark {
+
+    private static final String[] NOMES = {"Arroz", "Feijão", "Detergente", "Pão", "Maçã", "Suco", "Faca", "Café"};
+    private static final Map<String, MediaType> FORMATOS = new LinkedHashMap<>();
+
+    static {
+        FORMATOS.put("json", MediaTypes.HAL_JSON);
+        FORMATOS.put("cbor", MediaType.APPLICATION_CBOR);
+        FORMATOS.put("smile", new MediaType("application", "x-jackson-smile"));
+    }
+
+    @Autowired
+    private RequestMappingHandlerAdapter adapter;
+
+    @Autowired
+    private ProdutoModelAssembler produtoModelAssembler;
+
+    @Value("${calmarket.bench.serializacao.produtos}")
+    private int quantidadeProdutos;
+
+    @Value("${calmarket.bench.serializacao.repeticoes}")
+    private int repeticoes;
+
+    // Os links são montados a partir da requisição atual
+    @BeforeEach
+    void requisicao() {
+        RequestContextHolder.setRequestAttributes(new ServletRequestAttributes(new MockHttpServletRequest("GET", "/produtos")));
+    }
+
+    @AfterEach
+    void limpar() {
+        RequestContextHolder.resetRequestAttributes();
+    }
+
+    @Test
+    void listagem() throws Exception {
+        List<Produto> produtos = produtos();
+        Map<String, Object> casos = new LinkedHashMap<>();
+        Link self = produtoModelAssembler.linkLista(quantidadeProdutos, null);
+        casos.put("lista", produtoModelAssembler.toListaModel(produtos, self));
+        casos.put("itens", produtoModelAssembler.toListaModel(produtos.stream().map(produtoModelAssembler::toModel).toList(), self));
+
+        Properties resultado = new Properties();
+        StringBuilder relatorio = new StringBuilder(String.format("%nSerialização de %d produtos (mediana de %d execuções)%n", quantidadeProdutos, repeticoes))
+                .append(String.format("%-6s %-6s %12s %12s %14s %14s%n", "caso", "formato", "bytes", "bytes gzip", "serializar ms", "ler ms"));
+
+        for (Map.Entry<String, Object> caso : casos.entrySet()) {
+            int bytesJson = 0;
+            for (Map.Entry<String, MediaType> formato : FORMATOS.entrySet()) {
+                ObjectMapper mapper = mapper(caso.getValue().getClass(), formato.getValue());
+                byte[] corpo = mapper.writeValueAsBytes(caso.getValue());
+                int compactado = gzip(corpo).length;
+                double serializar = mediana(() -> mapper.writeValueAsBytes(caso.getValue()));
+                double ler = mediana(() -> mapper.readTree(corpo));
+
+                JsonNode arvore = mapper.readTree(corpo);
+                assertThat(arvore.has("_links")).as(caso.getKey() + "/" + formato.getKey() + " em HAL").isTrue();
+                assertThat(arvore.path("_embedded").isObject()).as(caso.getKey() + "/" + formato.getKey() + " com _embedded").isTrue();
+                if (formato.getKey().equals("json"))
+                    bytesJson = corpo.length;
+                else
+                    assertThat(corpo.length).as(caso.getKey() + "/" + formato.getKey() + " menor que JSON").isLessThan(bytesJson);
+
+                String prefixo = caso.getKey() + "." + formato.getKey();
+                resultado.setProperty(prefixo + ".bytes", String.valueOf(corpo.length));
+                resultado.setProperty(prefixo + ".bytes-gzip", String.valueOf(compactado));
+                resultado.setProperty(prefixo + ".serializar-ms", String.format(Locale.ROOT, "%.2f", serializar));
+                resultado.setProperty(prefixo + ".ler-ms", String.format(Locale.ROOT, "%.2f", ler));
+                relatorio.append(String.format("%-6s %-6s %12d %12d %14.2f %14.2f%n",
+                        caso.getKey(), formato.getKey(), corpo.length, compactado, serializar, ler));
+            }
+        }
+
+        System.out.println(relatorio);
+        Path diretorio = Path.of(System.getProperty("benchmark.diretorio", "."));
+        gravar(resultado, diretorio.resolve("target/benchmark/serializacao.properties"));
+    }
+
+    // ObjectMapper do conversor que o Spring MVC escolheria para o Accept informado
+    private ObjectMapper mapper(Class<?> tipo, MediaType formato) {
+        for (HttpMessageConverter<?> conversor : adapter.getMessageConverters())
+            if (conversor instanceof AbstractJackson2HttpMessageConverter jackson && jackson.canWrite(tipo, formato)) {
+                // O Spring HATEOAS registra o mapper do HAL no conversor JSON, por tipo e media type
+                ObjectMapper hal = jackson.getObjectMappersForType(tipo).get(formato);
+                return hal != null ? hal : jackson.getObjectMapper();
+            }
+        throw new IllegalStateException("Nenhum conversor para " + formato);
+    }
+
+    private List<Produto> produtos() {
+        Random random = new Random(42);
+        Instant agora = Instant.now();
+        List<Produto> produtos = new ArrayList<>(quantidadeProdutos);
+        for (int i = 1; i <= quantidadeProdutos; i++) {
+            produtos.add(new Produto(i, NOMES[random.nextInt(NOMES.length)] + " " + i, "Tipo " + random.nextInt(20),
+                    Setor.values()[random.nextInt(Setor.values().length)], random.nextInt(5) + "kg",
+                    BigDecimal.valueOf(100 + random.nextInt(10_000), 2), (long) random.nextInt(10), agora, i));
+        }
+        return produtos;
+    }
+
+    private double mediana(Operacao operacao) throws Exception {
+        for (int i = 0; i < repeticoes; i++) // aquecimento
+            operacao.executar();
+        long[] tempos = new long[repeticoes];
+        for (int i = 0; i < repeticoes; i++) {
+            long inicio = System.nanoTime();
+            operacao.executar();
+            tempos[i] = System.nanoTime() - inicio;
+        }
+        Arrays.sort(tempos);
+        return tempos[repeticoes / 2] / 1_000_000.0;
+    }
+
+    private static byte[] gzip(byte[] corpo) throws IOException {
+        ByteArrayOutputStream saida = new ByteArrayOutputStream(corpo.length / 4);
+        try (GZIPOutputStream compactado = new GZIPOutputStream(saida)) {
+            compactado.write(corpo);
+        }
+        return saida.toByteArray();
+    }
+
+    private static void gravar(Properties propriedades, Path arquivo) throws IOException {
+        Files.createDirectories(arquivo.getParent());
+        try (Writer writer = Files.newBufferedWriter(arquivo)) {
+            propriedades.store(writer, "calmarket benchmark de serialização");
+        }
+    }
+
+    @FunctionalInterface
+    private interface Operacao {
+        Object executar() throws Exception;
+    }
+}
@@ -0,0 +1,236 @@
+package br.com.fiap.calmarket.benchmark;
+
+import br.com.fiap.calmarket.dao.ProdutoDao;
+import br.com.fiap.calmarket.event.ProdutoAlteradoEvent;
+import br.com.fiap.calmarket.model.Produto;
+import br.com.fiap.calmarket.model.Setor;
+import br.com.fiap.calmarket.service.IndiceSugestoes;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionSynchronizationUtils;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+
+// Latência do autocomplete (IndiceSugestoes.sugerir, GET /produtos/sugestoes) com 1 milhão de produtos
+// (mvn -Pbenchmark test -Dtest=SugestoesBenchmark). O índice é carregado pela mesma carga inicial da aplicação,
+// alimentada sem banco. Mede p50/p99 por tipo de consulta, grava target/benchmark/sugestoes.properties
+// e falha se algum p99 passar de calmarket.bench.sugestoes.p99-ms (1 ms). O pior caso, em que nenhum candidato
+// tem o prefixo e as listas precisam ser cruzadas inteiras, tem limite próprio (p99-pior-ms, 5 ms).
+// Mede também o custo das escritas no commit: um produto alterado e um bloco de /produtos/lote (500 produtos numa
+// transação), ambos com termos presentes em dezenas a centenas de milhares de produtos. Limites em escrita-p99-ms e
+// escrita-lote-p99-ms (25 e 100 ms).
+class SugestoesBenchmark {
+
+    private static final int PRODUTOS = Integer.getInteger("calmarket.bench.sugestoes.produtos", 1_000_000);
+    private static final int CONSULTAS = Integer.getInteger("calmarket.bench.sugestoes.consultas", 20_000);
+    private static final double LIMITE_P99_MS = Double.parseDouble(System.getProperty("calmarket.bench.sugestoes.p99-ms", "1"));
+    private static final double LIMITE_P99_PIOR_MS = Double.parseDouble(System.getProperty("calmarket.bench.sugestoes.p99-pior-ms", "5"));
+    private static final double LIMITE_ESCRITA_P99_MS = Double.parseDouble(System.getProperty("calmarket.bench.sugestoes.escrita-p99-ms", "25"));
+    private static final double LIMITE_LOTE_P99_MS = Double.parseDouble(System.getProperty("calmarket.bench.sugestoes.escrita-lote-p99-ms", "100"));
+    private static final int LIMITE = 10;
+    private static final int COMMITS = 200;
+    private static final int LOTES = 40;
+    private static final int TAMANHO_LOTE = 500;
+
+    private static final String[] PRODUTOS_BASE = {"Arroz", "Feijão", "Macarrão", "Café", "Açúcar", "Farinha", "Leite",
+            "Manteiga", "Queijo", "Iogurte", "Pão", "Biscoito", "Chocolate", "Suco", "Refrigerante", "Água", "Cerveja",
+            "Vinho", "Detergente", "Sabão", "Amaciante", "Shampoo", "Condicionador", "Sabonete", "Papel", "Esponja",
+            "Maçã", "Banana", "Tomate", "Cebola"};
+    private static final String[] VARIANTES = {"Integral", "Tradicional", "Light", "Zero", "Orgânico", "Premium",
+            "Extra", "Especial", "Natural", "Desnatado", "Tipo 1", "Família", "Econômico", "Concentrado", "Fresco"};
+    private static final String[] MARCAS = {"Camil", "Tio João", "Kicaldo", "Pilão", "União", "Dona Benta", "Italac",
+            "Aviação", "Tirolez", "Danone", "Pullman", "Marilan", "Lacta", "Del Valle", "Guaraná", "Crystal",
+            "Heineken", "Casillero", "Ypê", "Omo"};
+    private static final String[] TIPOS = {"Mercearia", "Laticínios", "Bebidas", "Limpeza", "Higiene", "Hortifrúti",
+            "Padaria", "Doces"};
+    private static final String[] TAMANHOS = {"1kg", "5kg", "500g", "1l", "2l", "350ml", "200g", "12un"};
+
+    private record Caso(String nome, List<String> consultas, double limiteP99) {
+    }
+
+    private final Random random = new Random(42);
+
+    @Test
+    void latenciaCom1MilhaoDeProdutos() throws IOException {
+        ProdutoDao produtoDao = mock(ProdutoDao.class);
+        doAnswer(invocacao -> {
+            Consumer<Produto> consumidor = invocacao.getArgument(0);
+            for (int id = 1; id <= PRODUTOS; id++)
+                consumidor.accept(produto(id));
+            return null;
+        }).when(produtoDao).exportar(any());
+
+        IndiceSugestoes indice = new IndiceSugestoes(produtoDao);
+        long inicioCarga = System.nanoTime();
+        indice.carregar();
+        double cargaS = (System.nanoTime() - inicioCarga) / 1e9;
+
+        List<Caso> casos = List.of(
+                new Caso("1-letra", consultas(() -> prefixo(palavra(), 1)), LIMITE_P99_MS),
+                new Caso("prefixo", consultas(() -> prefixo(palavra(), 2 + random.nextInt(3))), LIMITE_P99_MS),
+                new Caso("palavra", consultas(this::palavra), LIMITE_P99_MS),
+                new Caso("2-termos", consultas(() -> produtoBase() + " " + prefixo(variante(), 1 + random.nextInt(3))), LIMITE_P99_MS),
+                new Caso("3-termos", consultas(() -> produtoBase() + " " + variante() + " " + prefixo(marca(), 1 + random.nextInt(3))), LIMITE_P99_MS),
+                // Pior caso: duas variantes nunca aparecem juntas, então milhares de candidatos e quase nenhum resultado
+                new Caso("sem-intersecao", consultas(() -> variante() + " " + prefixo(variante(), 2 + random.nextInt(3))), LIMITE_P99_PIOR_MS),
+                new Caso("sem-resultado", consultas(() -> "xyz" + random.nextInt(1000)), LIMITE_P99_MS));
+
+        Properties resultado = new Properties();
+        resultado.setProperty("carga.s", formatar(cargaS));
+        StringBuilder relatorio = new StringBuilder(String.format("%nSugestões com %d produtos (carga em %.1f s, %d consultas por caso, limit=%d)%n",
+                PRODUTOS, cargaS, CONSULTAS, LIMITE))
+                .append(String.format("%-16s %10s %10s %10s%n", "caso", "p50 ms", "p99 ms", "máx ms"));
+        List<String> lentos = new ArrayList<>();
+
+        for (Caso caso : casos) {
+            for (String consulta : caso.consultas()) // aquecimento
+                indice.sugerir(consulta, LIMITE);
+            long[] tempos = new long[caso.consultas().size()];
+            int i = 0;
+            for (String consulta : caso.consultas()) {
+                long inicio = System.nanoTime();
+                indice.sugerir(consulta, LIMITE);
+                tempos[i++] = System.nanoTime() - inicio;
+            }
+            Arrays.sort(tempos);
+            double p50 = tempos[tempos.length / 2] / 1e6;
+            double p99 = tempos[(int) Math.ceil(tempos.length * 0.99) - 1] / 1e6;
+            double maximo = tempos[tempos.length - 1] / 1e6;
+            resultado.setProperty(caso.nome() + ".p50", formatar(p50));
+            resultado.setProperty(caso.nome() + ".p99", formatar(p99));
+            relatorio.append(String.format("%-16s %10.3f %10.3f %10.3f%n", caso.nome(), p50, p99, maximo));
+            if (p99 > caso.limiteP99())
+                lentos.add(caso.nome() + ": p99 " + formatar(p99) + " ms, limite " + caso.limiteP99() + " ms");
+        }
+
+        // Escritas: cada commit passa pelo mesmo caminho da aplicação (eventos guardados e aplicados no afterCommit)
+        relatorio.append(String.format("%n%-16s %10s %10s %10s%n", "escrita", "p50 ms", "p99 ms", "máx ms"));
+        int[] proximoId = {PRODUTOS};
+        long[][] escritas = {
+                medirCommits(indice, COMMITS, () -> {
+                    int id = 1 + random.nextInt(PRODUTOS);
+                    Produto produto = produto(id);
+                    produto.setVersao(1L + proximoId[0]++);
+                    return List.of(new ProdutoAlteradoEvent(ProdutoAlteradoEvent.Operacao.ATUALIZADO, id, produto));
+                }),
+                medirCommits(indice, LOTES, () -> {
+                    List<ProdutoAlteradoEvent> lote = new ArrayList<>(TAMANHO_LOTE);
+                    for (int i = 0; i < TAMANHO_LOTE; i++) {
+                        int id = ++proximoId[0];
+                        lote.add(new ProdutoAlteradoEvent(ProdutoAlteradoEvent.Operacao.CRIADO, id, produto(id)));
+                    }
+                    return lote;
+                })};
+        String[] nomesEscrita = {"escrita-1", "escrita-lote-" + TAMANHO_LOTE};
+        double[] limitesEscrita = {LIMITE_ESCRITA_P99_MS, LIMITE_LOTE_P99_MS};
+        for (int e = 0; e < escritas.length; e++) {
+            long[] tempos = escritas[e];
+            double p50 = tempos[tempos.length / 2] / 1e6;
+            double p99 = tempos[(int) Math.ceil(tempos.length * 0.99) - 1] / 1e6;
+            resultado.setProperty(nomesEscrita[e] + ".p50", formatar(p50));
+            resultado.setProperty(nomesEscrita[e] + ".p99", formatar(p99));
+            relatorio.append(String.format("%-16s %10.3f %10.3f %10.3f%n", nomesEscrita[e], p50, p99, tempos[tempos.length - 1] / 1e6));
+            if (p99 > limitesEscrita[e])
+                lentos.add(nomesEscrita[e] + ": p99 " + formatar(p99) + " ms, limite " + limitesEscrita[e] + " ms");
+        }
+        assertThat(indice.sugerir("arroz", LIMITE)).hasSize(LIMITE);
+
+        System.out.println(relatorio);
+        Path diretorio = Path.of(System.getProperty("benchmark.diretorio", "."));
+        gravar(resultado, diretorio.resolve("target/benchmark/sugestoes.properties"));
+        assertThat(lentos).as("consultas com p99 acima do limite").isEmpty();
+    }
+
+    // Tempo de cada commit (do início da transação ao fim do afterCommit), já ordenado; o primeiro quarto aquece
+    private static long[] medirCommits(IndiceSugestoes indice, int commits, Supplier<List<ProdutoAlteradoEvent>> gerador) {
+        int aquecimento = commits / 4;
+        long[] tempos = new long[commits - aquecimento];
+        for (int c = 0; c < commits; c++) {
+            List<ProdutoAlteradoEvent> eventos = gerador.get();
+            long inicio = System.nanoTime();
+            TransactionSynchronizationManager.initSynchronization();
+            try {
+                eventos.forEach(indice::aoAlterar);
+                List<TransactionSynchronization> sincronizacoes = TransactionSynchronizationManager.getSynchronizations();
+                TransactionSynchronizationUtils.invokeAfterCommit(sincronizacoes);
+                TransactionSynchronizationUtils.invokeAfterCompletion(sincronizacoes, TransactionSynchronization.STATUS_COMMITTED);
+            } finally {
+                TransactionSynchronizationManager.clearSynchronization();
+            }
+            if (c >= aquecimento)
+                tempos[c - aquecimento] = System.nanoTime() - inicio;
+        }
+        Arrays.sort(tempos);
+        return tempos;
+    }
+
+    private List<String> consultas(Supplier<String> gerador) {
+        List<String> consultas = new ArrayList<>(CONSULTAS);
+        for (int i = 0; i < CONSULTAS; i++)
+            consultas.add(gerador.get());
+        return consultas;
+    }
+
+    private String palavra() {
+        return switch (random.nextInt(3)) {
+            case 0 -> produtoBase();
+            case 1 -> variante();
+            default -> marca();
+        };
+    }
+
+    private String produtoBase() {
+        return PRODUTOS_BASE[random.nextInt(PRODUTOS_BASE.length)];
+    }
+
+    // Só a primeira palavra de "Tipo 1" e "Tio João": a consulta simula o que está sendo digitado
+    private String variante() {
+        return VARIANTES[random.nextInt(VARIANTES.length)].split(" ")[0];
+    }
+
+    private String marca() {
+        return MARCAS[random.nextInt(MARCAS.length)].split(" ")[0];
+    }
+
+    private static String prefixo(String palavra, int tamanho) {
+        return palavra.substring(0, Math.min(tamanho, palavra.length()));
+    }
+
+    // Nome "<produto> <variante> <marca> <código>": poucos termos muito frequentes e um termo único por produto
+    private Produto produto(int id) {
+        Produto produto = new Produto();
+        produto.setId(id);
+        produto.setNome(PRODUTOS_BASE[random.nextInt(PRODUTOS_BASE.length)] + " " + VARIANTES[random.nextInt(VARIANTES.length)]
+                + " " + MARCAS[random.nextInt(MARCAS.length)] + " " + Integer.toString(id, 36));
+        produto.setTipo(TIPOS[random.nextInt(TIPOS.length)]);
+        produto.setSetor(Setor.values()[random.nextInt(Setor.values().length)]);
+        produto.setTamanho(TAMANHOS[random.nextInt(TAMANHOS.length)]);
+        produto.setPreco(BigDecimal.valueOf(100 + random.nextInt(10_000), 2));
+        produto.setVersao(0L);
+        return produto;
+    }
+
+    private static String formatar(double valor) {
+        return String.format(Locale.ROOT, "%.3f", valor);
+    }
+
+    private static void gravar(Properties propriedades, Path arquivo) throws IOException {
+        Files.createDirectories(arquivo.getParent());
+        try (Writer writer = Files.newBufferedWriter(arquivo)) {
+            propriedades.store(writer, "calmarket benchmark do autocomplete");
+        }
+    }
+}
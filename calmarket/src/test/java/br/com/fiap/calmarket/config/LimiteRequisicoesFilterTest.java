@@ -0,0 +1,92 @@
+package br.com.fiap.calmarket.config;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// Token bucket por usuário com relógio controlado: rajada, reposição, disputa pelo compareAndSet e Retry-After
+class LimiteRequisicoesFilterTest {
+
+    private static final long SEGUNDO = TimeUnit.SECONDS.toNanos(1);
+
+    // 10 de rajada, 2 por segundo: um token a cada 500 ms
+    private final LimiteRequisicoesFilter.Limite limite = LimiteRequisicoesFilter.Limite.de(10, 2);
+    private final AtomicLong relogio = new AtomicLong(1_000 * SEGUNDO);
+    private final LimiteRequisicoesFilter.Balde balde = new LimiteRequisicoesFilter.Balde(relogio::get);
+
+    @Test
+    void rajadaPassaInteiraEAProximaEsperaUmIntervalo() {
+        for (int i = 0; i < 10; i++)
+            assertThat(balde.consumir(limite)).as("requisição " + (i + 1)).isZero();
+
+        assertThat(balde.consumir(limite)).isEqualTo(SEGUNDO / 2);
+    }
+
+    @Test
+    void tokensVoltamNaTaxaSemPassarDaRajada() {
+        esvaziar();
+
+        relogio.addAndGet(SEGUNDO / 2 - 1);
+        assertThat(balde.consumir(limite)).isEqualTo(1);
+        relogio.addAndGet(1);
+        assertThat(balde.consumir(limite)).isZero();
+        assertThat(balde.consumir(limite)).isEqualTo(SEGUNDO / 2);
+
+        // 1,5 s: três tokens, e a recusa seguinte diz quanto falta para o quarto
+        relogio.addAndGet(3 * SEGUNDO / 2);
+        for (int i = 0; i < 3; i++)
+            assertThat(balde.consumir(limite)).isZero();
+        assertThat(balde.consumir(limite)).isEqualTo(SEGUNDO / 2);
+
+        // Muito tempo parado enche o balde só até a rajada
+        relogio.addAndGet(3_600 * SEGUNDO);
+        esvaziar();
+    }
+
+    // Relógio parado: todas as threads disputam o mesmo estado e exatamente a rajada passa
+    @Test
+    void requisicoesConcorrentesNaoPassamDaRajada() throws Exception {
+        int threads = 16, tentativas = 200;
+        LimiteRequisicoesFilter.Limite grande = LimiteRequisicoesFilter.Limite.de(1_000, 1);
+        CyclicBarrier largada = new CyclicBarrier(threads);
+        List<Callable<Integer>> tarefas = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            tarefas.add(() -> {
+                largada.await();
+                int aceitas = 0;
+                for (int i = 0; i < tentativas; i++)
+                    if (balde.consumir(grande) == 0)
+                        aceitas++;
+                return aceitas;
+            });
+        }
+
+        int aceitas = 0;
+        try (ExecutorService executor = Executors.newFixedThreadPool(threads)) {
+            for (Future<Integer> resultado : executor.invokeAll(tarefas))
+                aceitas += resultado.get();
+        }
+        assertThat(aceitas).isEqualTo(1_000);
+    }
+
+    @Test
+    void retryAfterArredondaParaCimaEmSegundosInteiros() {
+        assertThat(LimiteRequisicoesFilter.retryAfter(1)).isEqualTo("1");
+        assertThat(LimiteRequisicoesFilter.retryAfter(SEGUNDO / 2)).isEqualTo("1");
+        assertThat(LimiteRequisicoesFilter.retryAfter(SEGUNDO)).isEqualTo("1");
+        assertThat(LimiteRequisicoesFilter.retryAfter(SEGUNDO + 1)).isEqualTo("2");
+        assertThat(LimiteRequisicoesFilter.retryAfter(5 * SEGUNDO / 2)).isEqualTo("3");
+    }
+
+    // Consome a rajada inteira e confere que a seguinte é recusada
+    private void esvaziar() {
+        for (int i = 0; i < 10; i++)
+            assertThat(balde.consumir(limite)).as("requisição " + (i + 1)).isZero();
+        assertThat(balde.consumir(limite)).isPositive();
+    }
+}
@@ -0,0 +1,68 @@
+package br.com.fiap.calmarket.config;
+
+import org.flywaydb.core.Flyway;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.jdbc.datasource.init.ScriptUtils;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatIllegalStateException;
+
+// Banco sem histórico do Flyway entrando como baseline da V1 (H2 em modo MySQL)
+class MigracoesConfigTest {
+
+    private final DataSource dataSource = new DriverManagerDataSource(
+            "jdbc:h2:mem:migracoes" + System.nanoTime() + ";MODE=MySQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1");
+    private final JdbcTemplate jdbc = new JdbcTemplate(dataSource);
+
+    @Test
+    void bancoVazioNaoPrecisaDeVerificacao() {
+        assertThat(MigracoesConfig.divergenciasDoBaseline(dataSource)).isEmpty();
+    }
+
+    @Test
+    void bancoNoSchemaDaV1EntraComoBaselineERecebeAsDemaisMigracoes() throws Exception {
+        try (Connection conexao = dataSource.getConnection()) {
+            ScriptUtils.executeSqlScript(conexao, new ClassPathResource("db/migration/V1__schema_inicial.sql"));
+        }
+        jdbc.update("INSERT INTO cm_tb_produto (id, preco, versao, nome, tamanho, tipo, setor) "
+                + "VALUES (1, 10.00, 0, 'Arroz', '1kg', 'Grãos', 'ALIMENTOS')");
+
+        assertThat(MigracoesConfig.divergenciasDoBaseline(dataSource)).isEmpty();
+        migrar();
+
+        assertThat(jdbc.queryForObject("SELECT seq_alteracao FROM cm_tb_produto WHERE id = 1", Long.class)).isZero();
+        assertThat(MigracoesConfig.divergenciasDoBaseline(dataSource)).isEmpty();
+    }
+
+    // Banco criado pelo ddl-auto com entidades mais novas que a V1: a V3 não acharia os índices antigos
+    // e a V2 tentaria criar de novo a coluna e as tabelas que já existem
+    @Test
+    void bancoForaDoSchemaDaV1NaoEntraComoBaseline() {
+        jdbc.execute("CREATE TABLE cm_sq_produto (next_val BIGINT)");
+        jdbc.execute("CREATE TABLE cm_tb_produto (id INT PRIMARY KEY, preco DECIMAL(10,2), atualizado_em TIMESTAMP, versao BIGINT, "
+                + "nome VARCHAR(255), tamanho VARCHAR(255), tipo VARCHAR(255), setor VARCHAR(20), seq_alteracao BIGINT)");
+        jdbc.execute("CREATE INDEX IDX_PRODUTO_NOME_ID ON cm_tb_produto (nome, id)");
+        jdbc.execute("CREATE TABLE cm_tb_seq_alteracao (id INT PRIMARY KEY, valor BIGINT)");
+        jdbc.execute("CREATE TABLE tds_users_mercado (id BIGINT PRIMARY KEY, email VARCHAR(255), nome VARCHAR(255), senha VARCHAR(255))");
+
+        assertThat(MigracoesConfig.divergenciasDoBaseline(dataSource)).containsExactlyInAnyOrder(
+                "faltam em cm_tb_produto os índices [idx_produto_preco_id, idx_produto_setor_preco, "
+                        + "idx_produto_setor_tipo_tamanho, idx_produto_tipo_tamanho]",
+                "cm_tb_produto já tem a coluna seq_alteracao, criada pela V2",
+                "faltam em tds_users_mercado as colunas [role]",
+                "falta o índice único de email em tds_users_mercado",
+                "a tabela cm_tb_seq_alteracao já existe, mas é criada pela V2");
+        assertThatIllegalStateException().isThrownBy(this::migrar).withMessageContaining("baseline");
+    }
+
+    private void migrar() {
+        Flyway flyway = Flyway.configure().dataSource(dataSource).baselineOnMigrate(true).baselineVersion("1").load();
+        new MigracoesConfig().estrategiaMigracao(true).migrate(flyway);
+    }
+}
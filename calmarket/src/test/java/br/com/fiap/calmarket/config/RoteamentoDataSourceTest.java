@@ -0,0 +1,104 @@
+package br.com.fiap.calmarket.config;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.cache.Cache;
+import org.springframework.cache.support.SimpleCacheManager;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.time.Duration;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// Roteamento entre primário e réplica com dois H2 em memória. A réplica nunca recebe as escritas,
+// como uma réplica muito atrasada: o que for lido dela tem o valor antigo.
+class RoteamentoDataSourceTest {
+
+    private static final String LER = "SELECT nome FROM produto WHERE id = 1";
+
+    private RoteamentoDataSource roteamento;
+    private JdbcTemplate jdbc;
+    private TransactionTemplate escrita;
+    private TransactionTemplate leitura;
+    private Cache cache;
+
+    private void iniciar(Duration janela) throws Exception {
+        DataSource primario = banco("primario");
+        DataSource replica = banco("replica");
+        roteamento = new RoteamentoDataSource(primario, Map.of("replica-1", replica), janela, Duration.ofMinutes(1));
+        DataSource dataSource = new LazyConnectionDataSourceProxy(roteamento);
+        DataSourceTransactionManager transacoes = new DataSourceTransactionManager(dataSource);
+        jdbc = new JdbcTemplate(dataSource);
+        escrita = new TransactionTemplate(transacoes);
+        leitura = new TransactionTemplate(transacoes);
+        leitura.setReadOnly(true);
+        SimpleCacheManager caches = (SimpleCacheManager) new CacheConfig()
+                .cacheManager("maximumSize=100", "maximumSize=100", "maximumSize=100", "maximumSize=100");
+        caches.afterPropertiesSet();
+        cache = caches.getCache(CacheConfig.PRODUTOS);
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        SecurityContextHolder.clearContext();
+        roteamento.close();
+    }
+
+    @Test
+    void escritaDeUmUsuarioJaApareceParaOutroPeloCache() throws Exception {
+        iniciar(Duration.ofSeconds(30));
+        como("alice");
+        escrita.executeWithoutResult(status -> jdbc.update("UPDATE produto SET nome = 'Feijão' WHERE id = 1"));
+
+        como("bob");
+        // A leitura que enche o cache compartilhado vai ao primário
+        assertThat(cache.get(1, this::ler)).isEqualTo("Feijão");
+        assertThat(cache.get(1, () -> "não deveria carregar")).isEqualTo("Feijão");
+        // As demais leituras de quem não escreveu continuam na réplica
+        assertThat(ler()).isEqualTo("Arroz");
+    }
+
+    @Test
+    void passadaAJanelaOCacheVoltaALerDaReplica() throws Exception {
+        iniciar(Duration.ofMillis(100));
+        como("alice");
+        escrita.executeWithoutResult(status -> jdbc.update("UPDATE produto SET nome = 'Feijão' WHERE id = 1"));
+        Thread.sleep(200);
+
+        como("bob");
+        assertThat(cache.get(1, this::ler)).isEqualTo("Arroz");
+    }
+
+    @Test
+    void quemEscreveuLeDoPrimarioMesmoForaDoCache() throws Exception {
+        iniciar(Duration.ofSeconds(30));
+        como("alice");
+        escrita.executeWithoutResult(status -> jdbc.update("UPDATE produto SET nome = 'Feijão' WHERE id = 1"));
+
+        assertThat(ler()).isEqualTo("Feijão");
+    }
+
+    private String ler() {
+        return leitura.execute(status -> jdbc.queryForObject(LER, String.class));
+    }
+
+    private static void como(String usuario) {
+        SecurityContextHolder.getContext().setAuthentication(UsernamePasswordAuthenticationToken.authenticated(usuario, null, null));
+    }
+
+    private static DataSource banco(String nome) {
+        DriverManagerDataSource dataSource = new DriverManagerDataSource("jdbc:h2:mem:" + nome + System.nanoTime() + ";DB_CLOSE_DELAY=-1");
+        JdbcTemplate jdbc = new JdbcTemplate(dataSource);
+        jdbc.execute("CREATE TABLE produto (id INT PRIMARY KEY, nome VARCHAR(50))");
+        jdbc.update("INSERT INTO produto VALUES (1, 'Arroz')");
+        return dataSource;
+    }
+}
@@ -0,0 +1,101 @@
+package br.com.fiap.calmarket.config;
+
+import br.com.fiap.calmarket.controller.AuthController;
+import br.com.fiap.calmarket.controller.TokenController;
+import br.com.fiap.calmarket.dao.UsuarioDao;
+import br.com.fiap.calmarket.service.UsuarioService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.security.core.userdetails.User;
+import org.springframework.security.core.userdetails.UsernameNotFoundException;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.test.web.servlet.MockMvc;
+
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+// Pool de hash de senha cheio (1 thread, fila de 1, hash calibrado para segundos): login, token e cadastro
+// respondem 503 com Retry-After em vez de 500 ou 401
+@WebMvcTest(controllers = {AuthController.class, TokenController.class}, properties = {
+        "calmarket.senha.threads=1",
+        "calmarket.senha.fila=1",
+        "calmarket.senha.tempo-alvo-ms=4000",
+        "calmarket.senha.espera-ms=10000",
+        "calmarket.token.habilitado=true",
+        "calmarket.token.segredo=segredo-de-teste-com-mais-de-32-bytes-0123456789"
+})
+@Import({SecurityConfig.class, TokenSecurityConfig.class, CacheConfig.class})
+class SobrecargaSenhaTest {
+
+    @Autowired
+    private MockMvc mvc;
+
+    @Autowired
+    private PasswordEncoder passwordEncoder;
+
+    @MockitoBean
+    private UsuarioService usuarioService;
+
+    @MockitoBean
+    private UsuarioDao usuarioDao;
+
+    @BeforeEach
+    void setUp() throws InterruptedException {
+        when(usuarioService.loadUserByUsername(anyString())).thenReturn(User.withUsername("cliente@calmarket.com")
+                .password(new BCryptPasswordEncoder(4).encode("senha123")).roles("CLIENTE").build());
+        when(usuarioService.loadUserByUsername("desconhecido@calmarket.com")).thenThrow(new UsernameNotFoundException("Usuário não encontrado"));
+
+        // Um hash rodando e outro na fila: o próximo é recusado na hora
+        for (int i = 0; i < 2; i++) {
+            Thread.ofVirtual().start(() -> {
+                try {
+                    passwordEncoder.encode("ocupa o pool");
+                } catch (RuntimeException e) {
+                    // recusado: o pool já estava cheio
+                }
+            });
+        }
+        Thread.sleep(300);
+    }
+
+    @Test
+    void loginComPoolCheioResponde503() throws Exception {
+        mvc.perform(post("/login").param("username", "cliente@calmarket.com").param("password", "senha123"))
+                .andExpect(status().isServiceUnavailable())
+                .andExpect(header().string(HttpHeaders.RETRY_AFTER, "1"));
+    }
+
+    @Test
+    void tokenComPoolCheioResponde503() throws Exception {
+        mvc.perform(post("/auth/token").contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"email\": \"cliente@calmarket.com\", \"senha\": \"senha123\"}"))
+                .andExpect(status().isServiceUnavailable())
+                .andExpect(header().string(HttpHeaders.RETRY_AFTER, "1"));
+    }
+
+    // Usuário inexistente também passa pelo hash (contra medição de tempo), dentro da busca do usuário
+    @Test
+    void tokenDeUsuarioDesconhecidoComPoolCheioResponde503() throws Exception {
+        mvc.perform(post("/auth/token").contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"email\": \"desconhecido@calmarket.com\", \"senha\": \"senha123\"}"))
+                .andExpect(status().isServiceUnavailable())
+                .andExpect(header().string(HttpHeaders.RETRY_AFTER, "1"));
+    }
+
+    @Test
+    void cadastroComPoolCheioResponde503() throws Exception {
+        mvc.perform(post("/signup").param("email", "novo@calmarket.com").param("senha", "senha123"))
+                .andExpect(status().isServiceUnavailable())
+                .andExpect(header().string(HttpHeaders.RETRY_AFTER, "1"));
+    }
+}
@@ -0,0 +1,34 @@
+package br.com.fiap.calmarket.config;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatIllegalStateException;
+
+// Segredo dos tokens: a subida falha sem segredo, com segredo curto ou com o valor de exemplo antigo
+class TokenSecurityConfigTest {
+
+    @Test
+    void semSegredoNaoSobe() {
+        assertThatIllegalStateException().isThrownBy(() -> TokenSecurityConfig.chave(""))
+                .withMessageContaining("não definido");
+    }
+
+    @Test
+    void segredoCurtoNaoSobe() {
+        assertThatIllegalStateException().isThrownBy(() -> TokenSecurityConfig.chave("curto-demais"))
+                .withMessageContaining("32 bytes");
+    }
+
+    @Test
+    void segredoDeExemploNaoSobe() {
+        assertThatIllegalStateException()
+                .isThrownBy(() -> TokenSecurityConfig.chave("troque-este-segredo-por-um-valor-aleatorio-de-32-bytes-ou-mais"))
+                .withMessageContaining("exemplo");
+    }
+
+    @Test
+    void segredoAleatorioDe32BytesSobe() {
+        assertThat(TokenSecurityConfig.chave("k3F9x2Qm7Zp1Lw8Rt5Yv0Nb4Hc6Jd2Sa").getAlgorithm()).isEqualTo("HmacSHA256");
+    }
+}
@@ -0,0 +1,44 @@
+package br.com.fiap.calmarket.controller;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// Accept-Encoding da exportação: gzip só quando o cliente aceita, respeitando q=0, x-gzip e o curinga
+class ProdutoControllerTest {
+
+    @Test
+    void gzipAceitoComOuSemQ() {
+        assertThat(ProdutoController.codificacaoGzip("gzip")).isEqualTo("gzip");
+        assertThat(ProdutoController.codificacaoGzip("br, gzip;q=0.5, deflate")).isEqualTo("gzip");
+        assertThat(ProdutoController.codificacaoGzip("GZIP ; Q=1")).isEqualTo("gzip");
+    }
+
+    @Test
+    void qZeroRecusaGzip() {
+        assertThat(ProdutoController.codificacaoGzip("gzip;q=0")).isNull();
+        assertThat(ProdutoController.codificacaoGzip("gzip;q=0.000, identity")).isNull();
+        assertThat(ProdutoController.codificacaoGzip("*, gzip;q=0")).isNull();
+        assertThat(ProdutoController.codificacaoGzip("gzip;q=abc")).isNull();
+    }
+
+    @Test
+    void xGzipRespondeComOMesmoNome() {
+        assertThat(ProdutoController.codificacaoGzip("x-gzip")).isEqualTo("x-gzip");
+        assertThat(ProdutoController.codificacaoGzip("x-gzip;q=0")).isNull();
+    }
+
+    @Test
+    void curingaValeParaGzipSemNomeProprio() {
+        assertThat(ProdutoController.codificacaoGzip("*")).isEqualTo("gzip");
+        assertThat(ProdutoController.codificacaoGzip("*;q=0")).isNull();
+    }
+
+    @Test
+    void semGzipEnviaSemCompressao() {
+        assertThat(ProdutoController.codificacaoGzip(null)).isNull();
+        assertThat(ProdutoController.codificacaoGzip("")).isNull();
+        assertThat(ProdutoController.codificacaoGzip("identity, deflate, br")).isNull();
+        assertThat(ProdutoController.codificacaoGzip("gzipx")).isNull();
+    }
+}
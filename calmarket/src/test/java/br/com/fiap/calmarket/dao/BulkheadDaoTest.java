@@ -0,0 +1,155 @@
+package br.com.fiap.calmarket.dao;
+
+import br.com.fiap.calmarket.Exception.SobrecargaException;
+import br.com.fiap.calmarket.config.CacheConfig;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.Ordered;
+import org.springframework.http.HttpHeaders;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.*;
+
+// Bulkhead do DAO: sem permissão livre a chamada é recusada na hora, sem esperar nem chegar ao DAO
+class BulkheadDaoTest {
+
+    private final ExecutorService executor = Executors.newCachedThreadPool();
+    private final CountDownLatch liberar = new CountDownLatch(1);
+
+    @AfterEach
+    void tearDown() {
+        liberar.countDown();
+        executor.shutdownNow();
+    }
+
+    @Test
+    void semPermissaoRecusaNaHoraSemChamarODao() throws Throwable {
+        BulkheadDao bulkhead = new BulkheadDao(3, 1, 0);
+        List<Future<Object>> ocupando = ocupar(bulkhead, 2);
+
+        ProceedingJoinPoint chamada = mock(ProceedingJoinPoint.class);
+        long inicio = System.nanoTime();
+        assertThatThrownBy(() -> bulkhead.limitar(chamada))
+                .isInstanceOfSatisfying(SobrecargaException.class,
+                        e -> assertThat(e.getHeaders().getFirst(HttpHeaders.RETRY_AFTER)).isEqualTo("1"));
+        assertThat(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - inicio)).isLessThan(100);
+        verify(chamada, never()).proceed();
+
+        liberar.countDown();
+        for (Future<Object> futuro : ocupando)
+            assertThat(futuro.get(5, TimeUnit.SECONDS)).isEqualTo("ok");
+        assertThat(bulkhead.disponiveis()).isEqualTo(2);
+        assertThat(bulkhead.limitar(dao(() -> "ok"))).isEqualTo("ok");
+    }
+
+    @Test
+    void esperaCurtaAbsorvePermissaoLiberadaNoMeioDoCaminho() throws Throwable {
+        BulkheadDao bulkhead = new BulkheadDao(2, 1, 2_000);
+        List<Future<Object>> ocupando = ocupar(bulkhead, 1);
+        executor.submit(() -> {
+            Thread.sleep(100);
+            liberar.countDown();
+            return null;
+        });
+
+        assertThat(bulkhead.limitar(dao(() -> "depois da espera"))).isEqualTo("depois da espera");
+        assertThat(ocupando.get(0).get(5, TimeUnit.SECONDS)).isEqualTo("ok");
+    }
+
+    // O DAO chamando outro método do DAO na mesma thread não pede uma segunda permissão
+    @Test
+    void chamadaAninhadaReaproveitaAPermissao() throws Throwable {
+        BulkheadDao bulkhead = new BulkheadDao(2, 1, 0);
+
+        Object resultado = bulkhead.limitar(dao(() -> bulkhead.limitar(dao(() -> "aninhada"))));
+
+        assertThat(resultado).isEqualTo("aninhada");
+        assertThat(bulkhead.disponiveis()).isEqualTo(1);
+    }
+
+    @Test
+    void excecaoDoDaoDevolveAPermissao() {
+        BulkheadDao bulkhead = new BulkheadDao(2, 1, 0);
+
+        assertThatThrownBy(() -> bulkhead.limitar(dao(() -> {
+            throw new IllegalStateException("falha no banco");
+        }))).isInstanceOf(IllegalStateException.class);
+        assertThat(bulkhead.disponiveis()).isEqualTo(1);
+    }
+
+    // Exportação longa usa as permissões reservadas: não tira permissão das leituras, e a segunda exportação é recusada
+    @Test
+    void exportacaoUsaPermissoesProprias() throws Throwable {
+        BulkheadDao bulkhead = new BulkheadDao(2, 1, 0);
+        List<Future<Object>> exportando = ocupar(bulkhead::limitarExportacao, 1);
+
+        assertThat(bulkhead.disponiveis()).isEqualTo(1);
+        assertThat(bulkhead.limitar(dao(() -> "leitura"))).isEqualTo("leitura");
+        assertThatThrownBy(() -> bulkhead.limitarExportacao(dao(() -> "outra exportação")))
+                .isInstanceOf(SobrecargaException.class);
+
+        liberar.countDown();
+        assertThat(exportando.get(0).get(5, TimeUnit.SECONDS)).isEqualTo("ok");
+        assertThat(bulkhead.exportacoesDisponiveis()).isEqualTo(1);
+    }
+
+    @Test
+    void exportacoesPrecisamDeixarPermissaoParaAsLeituras() {
+        assertThatThrownBy(() -> new BulkheadDao(2, 2, 0)).isInstanceOf(IllegalStateException.class);
+        assertThatThrownBy(() -> new BulkheadDao(2, 0, 0)).isInstanceOf(IllegalStateException.class);
+    }
+
+    // Acerto de cache não chega ao bulkhead, e a permissão é pedida antes do @Transactional pegar a conexão
+    @Test
+    void bulkheadFicaEntreOCacheEATransacao() {
+        assertThat(CacheConfig.ORDEM).isLessThan(BulkheadDao.ORDEM);
+        assertThat(BulkheadDao.ORDEM).isLessThan(Ordered.LOWEST_PRECEDENCE);
+    }
+
+    private List<Future<Object>> ocupar(BulkheadDao bulkhead, int quantidade) throws InterruptedException {
+        return ocupar(bulkhead::limitar, quantidade);
+    }
+
+    // Chamadas presas dentro do DAO até o liberar
+    private List<Future<Object>> ocupar(Aspecto aspecto, int quantidade) throws InterruptedException {
+        CountDownLatch dentro = new CountDownLatch(quantidade);
+        List<Future<Object>> futuros = new ArrayList<>();
+        for (int i = 0; i < quantidade; i++) {
+            futuros.add(executor.submit(() -> {
+                try {
+                    return aspecto.executar(dao(() -> {
+                        dentro.countDown();
+                        liberar.await();
+                        return "ok";
+                    }));
+                } catch (Throwable e) {
+                    throw new CompletionException(e);
+                }
+            }));
+        }
+        assertThat(dentro.await(5, TimeUnit.SECONDS)).isTrue();
+        return futuros;
+    }
+
+    // limitar ou limitarExportacao
+    private interface Aspecto {
+        Object executar(ProceedingJoinPoint chamada) throws Throwable;
+    }
+
+    // O que o método do DAO faz dentro do bulkhead
+    private interface Corpo {
+        Object executar() throws Throwable;
+    }
+
+    private static ProceedingJoinPoint dao(Corpo corpo) throws Throwable {
+        ProceedingJoinPoint chamada = mock(ProceedingJoinPoint.class);
+        when(chamada.proceed()).thenAnswer(invocacao -> corpo.executar());
+        return chamada;
+    }
+}
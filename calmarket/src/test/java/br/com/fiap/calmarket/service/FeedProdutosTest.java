@@ -0,0 +1,261 @@
+package br.com.fiap.calmarket.service;
+
+import br.com.fiap.calmarket.event.ProdutoAlteradoEvent;
+import br.com.fiap.calmarket.model.Produto;
+import br.com.fiap.calmarket.model.Setor;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionSynchronizationUtils;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.AbstractExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+
+// Buffer, histórico e retomada do /produtos/stream. Os envios ficam numa fila manual: o teste decide quando
+// cada assinante é esvaziado, o que torna determinístico o assinante que não acompanha.
+class FeedProdutosTest {
+
+    private static final int HISTORICO = 8;
+    private static final int BUFFER = 4;
+
+    private record Evento(String id, String nome, String dados) {
+    }
+
+    private final ObjectMapper objectMapper = Jackson2ObjectMapperBuilder.json().build();
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private final EnviosManuais envios = new EnviosManuais();
+    private FeedProdutos feed;
+    private MockMvc mvc;
+
+    @BeforeEach
+    void setUp() {
+        feed = new FeedProdutos(objectMapper, registry, HISTORICO, BUFFER, 100,
+                Duration.ofMinutes(1), Duration.ofHours(1), envios);
+        mvc = MockMvcBuilders.standaloneSetup(new Stream(feed)).build();
+    }
+
+    @AfterEach
+    void tearDown() {
+        feed.close();
+    }
+
+    @Test
+    void loteConfirmadoEmUmaTransacaoViraUmEvento() throws Exception {
+        MvcResult assinante = assinar(null);
+
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            for (int id = 1; id <= 500; id++)
+                feed.aoAlterar(new ProdutoAlteradoEvent(ProdutoAlteradoEvent.Operacao.CRIADO, id, produto(id)));
+            List<TransactionSynchronization> sincronizacoes = TransactionSynchronizationManager.getSynchronizations();
+            TransactionSynchronizationUtils.invokeAfterCommit(sincronizacoes);
+            TransactionSynchronizationUtils.invokeAfterCompletion(sincronizacoes, TransactionSynchronization.STATUS_COMMITTED);
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+        envios.rodar();
+
+        List<Evento> eventos = eventos(assinante);
+        assertThat(eventos).hasSize(1);
+        assertThat(eventos.get(0).nome()).isEqualTo(FeedProdutos.LOTE);
+        JsonNode lote = objectMapper.readTree(eventos.get(0).dados());
+        assertThat(lote).hasSize(500);
+        assertThat(lote.get(0).get("operacao").asText()).isEqualTo("CRIADO");
+        assertThat(lote.get(499).get("id").asInt()).isEqualTo(500);
+        assertThat(desconectados()).isZero();
+    }
+
+    @Test
+    void transacaoDesfeitaNaoPublica() throws Exception {
+        MvcResult assinante = assinar(null);
+
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            feed.aoAlterar(new ProdutoAlteradoEvent(ProdutoAlteradoEvent.Operacao.CRIADO, 1, produto(1)));
+            TransactionSynchronizationUtils.invokeAfterCompletion(TransactionSynchronizationManager.getSynchronizations(),
+                    TransactionSynchronization.STATUS_ROLLED_BACK);
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+        envios.rodar();
+
+        assertThat(eventos(assinante)).isEmpty();
+    }
+
+    @Test
+    void assinanteQueNaoAcompanhaEDesconectadoERetomaPeloUltimoId() throws Exception {
+        MvcResult lento = assinar(null);
+        publicar(1, 2);
+        envios.rodar();
+        List<Evento> recebidos = eventos(lento);
+        assertThat(recebidos).extracting(Evento::nome).containsExactly("CRIADO", "CRIADO");
+
+        // Mais eventos do que o buffer sem que a fila seja esvaziada
+        publicar(3, 4, 5, 6, 7);
+        assertThat(desconectados()).isEqualTo(1);
+        envios.rodar();
+        assertThat(eventos(lento)).hasSize(2);
+
+        // Reconecta com o último ID recebido e recebe exatamente o que perdeu, na ordem
+        MvcResult retomado = assinar(recebidos.get(1).id());
+        envios.rodar();
+        assertThat(eventos(retomado)).extracting(evento -> objectMapper.readTree(evento.dados()).get("id").asInt())
+                .containsExactly(3, 4, 5, 6, 7);
+
+        // Já em dia, volta a receber os eventos novos normalmente
+        publicar(8);
+        envios.rodar();
+        assertThat(eventos(retomado)).hasSize(6);
+    }
+
+    @Test
+    void ultimoIdForaDoHistoricoRecebeReinicio() throws Exception {
+        MvcResult primeiro = assinar(null);
+        publicar(1);
+        envios.rodar();
+        String ultimo = eventos(primeiro).get(0).id();
+
+        publicar(2, 3, 4, 5, 6, 7, 8, 9, 10);
+        MvcResult reconectado = assinar(ultimo);
+        envios.rodar();
+
+        List<Evento> eventos = eventos(reconectado);
+        assertThat(eventos).extracting(Evento::nome).containsExactly(FeedProdutos.REINICIO);
+        // O ID do REINICIO é o atual: a próxima reconexão retoma dali
+        assertThat(Long.parseLong(eventos.get(0).id())).isEqualTo(Long.parseLong(ultimo) + 9);
+    }
+
+    @Test
+    void ultimoIdInvalidoRecebeReinicio() throws Exception {
+        publicar(1);
+        MvcResult assinante = assinar("abc");
+        envios.rodar();
+        assertThat(eventos(assinante)).extracting(Evento::nome).containsExactly(FeedProdutos.REINICIO);
+    }
+
+    private MvcResult assinar(String ultimoId) throws Exception {
+        MvcResult resultado = mvc.perform(ultimoId == null ? get("/stream") : get("/stream").header("Last-Event-ID", ultimoId))
+                .andReturn();
+        envios.rodar();
+        return resultado;
+    }
+
+    // Fora de transação: cada alteração vira um evento na hora
+    private void publicar(int... ids) {
+        for (int id : ids)
+            feed.aoAlterar(new ProdutoAlteradoEvent(ProdutoAlteradoEvent.Operacao.CRIADO, id, produto(id)));
+    }
+
+    private double desconectados() {
+        return registry.get("calmarket.stream.desconectados").counter().count();
+    }
+
+    // Eventos SSE da resposta, sem os comentários
+    private static List<Evento> eventos(MvcResult resultado) throws Exception {
+        List<Evento> eventos = new ArrayList<>();
+        for (String bloco : resultado.getResponse().getContentAsString().split("\n\n")) {
+            String id = null, nome = null, dados = null;
+            for (String linha : bloco.split("\n")) {
+                if (linha.startsWith("id:"))
+                    id = linha.substring(3);
+                else if (linha.startsWith("event:"))
+                    nome = linha.substring(6);
+                else if (linha.startsWith("data:"))
+                    dados = linha.substring(5);
+            }
+            if (nome != null)
+                eventos.add(new Evento(id, nome, dados));
+        }
+        return eventos;
+    }
+
+    private static Produto produto(int id) {
+        Produto produto = new Produto();
+        produto.setId(id);
+        produto.setNome("Produto " + id);
+        produto.setTipo("Tipo");
+        produto.setSetor(Setor.BEBIDAS);
+        produto.setTamanho("1l");
+        produto.setPreco(BigDecimal.TEN);
+        return produto;
+    }
+
+    @RestController
+    static class Stream {
+        private final FeedProdutos feed;
+
+        Stream(FeedProdutos feed) {
+            this.feed = feed;
+        }
+
+        @GetMapping("/stream")
+        SseEmitter stream(@RequestHeader(value = "Last-Event-ID", required = false) String ultimoId) {
+            return feed.assinar(ultimoId);
+        }
+    }
+
+    // Executor que só roda as tarefas quando o teste pede
+    static class EnviosManuais extends AbstractExecutorService {
+        private final Queue<Runnable> tarefas = new ArrayDeque<>();
+
+        void rodar() {
+            Runnable tarefa;
+            while ((tarefa = tarefas.poll()) != null)
+                tarefa.run();
+        }
+
+        @Override
+        public void execute(Runnable tarefa) {
+            tarefas.add(tarefa);
+        }
+
+        @Override
+        public void shutdown() {
+            tarefas.clear();
+        }
+
+        @Override
+        public List<Runnable> shutdownNow() {
+            List<Runnable> pendentes = new ArrayList<>(tarefas);
+            tarefas.clear();
+            return pendentes;
+        }
+
+        @Override
+        public boolean isShutdown() {
+            return false;
+        }
+
+        @Override
+        public boolean isTerminated() {
+            return false;
+        }
+
+        @Override
+        public boolean awaitTermination(long timeout, TimeUnit unit) {
+            return true;
+        }
+    }
+}
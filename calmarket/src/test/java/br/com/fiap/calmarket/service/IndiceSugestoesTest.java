@@ -0,0 +1,206 @@
+package br.com.fiap.calmarket.service;
+
+import br.com.fiap.calmarket.dao.ProdutoDao;
+import br.com.fiap.calmarket.dto.Sugestao;
+import br.com.fiap.calmarket.event.ProdutoAlteradoEvent;
+import br.com.fiap.calmarket.model.Produto;
+import br.com.fiap.calmarket.model.Setor;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionSynchronizationUtils;
+
+import java.math.BigDecimal;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.function.Consumer;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+
+// Atualizações concorrentes do índice de sugestões, eventos agrupados por transação e a carga inicial disputando com os eventos
+class IndiceSugestoesTest {
+
+    private final ProdutoDao produtoDao = mock(ProdutoDao.class);
+    private final IndiceSugestoes indice = new IndiceSugestoes(produtoDao);
+
+    @Test
+    void versoesConcorrentesDoMesmoProdutoTerminamNaMaisRecente() throws Exception {
+        int produtos = 20, versoes = 200;
+        List<Callable<Void>> tarefas = new ArrayList<>();
+        for (int id = 1; id <= produtos; id++) {
+            for (int versao = 1; versao <= versoes; versao++) {
+                Produto produto = produto(id, "Nome" + versao + " Produto", versao);
+                tarefas.add(() -> {
+                    indice.indexar(produto);
+                    return null;
+                });
+            }
+        }
+        executar(tarefas);
+
+        assertThat(indice.inconsistencias()).isEmpty();
+        // Nenhum produto ficou preso a um nome antigo
+        assertThat(indice.sugerir("produto", 100)).hasSize(produtos)
+                .extracting(Sugestao::getNome).containsOnly("Nome" + versoes + " Produto");
+        assertThat(indice.sugerir("produto nome" + versoes, 100)).hasSize(produtos);
+    }
+
+    @Test
+    void remocaoConcorrenteComIndexacaoNaoDeixaTermosOrfaos() throws Exception {
+        List<Callable<Void>> tarefas = new ArrayList<>();
+        for (int rodada = 0; rodada < 200; rodada++) {
+            int id = rodada % 10 + 1;
+            long versao = rodada;
+            tarefas.add(() -> {
+                indice.indexar(produto(id, "Arroz " + versao, versao));
+                return null;
+            });
+            tarefas.add(() -> {
+                indice.remover(id);
+                return null;
+            });
+        }
+        executar(tarefas);
+
+        assertThat(indice.inconsistencias()).isEmpty();
+    }
+
+    @Test
+    void cargaInicialNaoDesfazAlteracoesFeitasDuranteELa() throws Exception {
+        CountDownLatch meioDaCarga = new CountDownLatch(1);
+        CountDownLatch continuar = new CountDownLatch(1);
+        doAnswer(invocacao -> {
+            Consumer<Produto> consumidor = invocacao.getArgument(0);
+            // Leitura da tabela antes das alterações: produto 1 ainda existe e o 2 ainda se chama "Feijão"
+            consumidor.accept(produto(1, "Arroz", 0));
+            meioDaCarga.countDown();
+            continuar.await();
+            consumidor.accept(produto(2, "Feijão", 0));
+            consumidor.accept(produto(3, "Café", 0));
+            return null;
+        }).when(produtoDao).exportar(any());
+
+        ExecutorService carga = Executors.newSingleThreadExecutor();
+        Future<?> carregando = carga.submit(indice::carregar);
+        meioDaCarga.await();
+        assertThat(indice.pronto()).isFalse();
+        indice.aoAlterar(new ProdutoAlteradoEvent(ProdutoAlteradoEvent.Operacao.REMOVIDO, 1, produto(1, "Arroz", 0)));
+        indice.aoAlterar(new ProdutoAlteradoEvent(ProdutoAlteradoEvent.Operacao.ATUALIZADO, 2, produto(2, "Farinha", 1)));
+        indice.aoAlterar(new ProdutoAlteradoEvent(ProdutoAlteradoEvent.Operacao.CRIADO, 4, produto(4, "Açúcar", 0)));
+        continuar.countDown();
+        carregando.get(10, TimeUnit.SECONDS);
+        carga.shutdown();
+        assertThat(indice.pronto()).isTrue();
+
+        assertThat(indice.sugerir("arr", 10)).isEmpty();
+        assertThat(indice.sugerir("fei", 10)).isEmpty();
+        assertThat(indice.sugerir("far", 10)).extracting(Sugestao::getId).containsExactly(2);
+        assertThat(indice.sugerir("caf", 10)).extracting(Sugestao::getId).containsExactly(3);
+        assertThat(indice.sugerir("acu", 10)).extracting(Sugestao::getId).containsExactly(4);
+        assertThat(indice.inconsistencias()).isEmpty();
+    }
+
+    // Eventos de uma transação ficam guardados até o commit e entram juntos; com rollback são descartados
+    @Test
+    void eventosDaTransacaoEntramJuntosNoCommit() {
+        indice.indexar(produto(1, "Arroz Integral", 0));
+
+        emTransacao(() -> {
+            for (int id = 2; id <= 500; id++)
+                indice.aoAlterar(new ProdutoAlteradoEvent(ProdutoAlteradoEvent.Operacao.CRIADO, id, produto(id, "Arroz Tipo " + id, 0)));
+            indice.aoAlterar(new ProdutoAlteradoEvent(ProdutoAlteradoEvent.Operacao.ATUALIZADO, 1, produto(1, "Arroz Parboilizado", 1)));
+            indice.aoAlterar(new ProdutoAlteradoEvent(ProdutoAlteradoEvent.Operacao.REMOVIDO, 2, produto(2, "Arroz Tipo 2", 0)));
+            assertThat(indice.sugerir("arroz", 1_000)).hasSize(1);
+        }, true);
+
+        assertThat(indice.sugerir("arroz", 1_000)).hasSize(499);
+        assertThat(indice.sugerir("integral", 10)).isEmpty();
+        assertThat(indice.sugerir("parb", 10)).extracting(Sugestao::getId).containsExactly(1);
+        assertThat(indice.inconsistencias()).isEmpty();
+
+        emTransacao(() -> indice.aoAlterar(new ProdutoAlteradoEvent(ProdutoAlteradoEvent.Operacao.REMOVIDO, 1, produto(1, "Arroz Parboilizado", 1))), false);
+        assertThat(indice.sugerir("parb", 10)).extracting(Sugestao::getId).containsExactly(1);
+    }
+
+    @Test
+    void eventoForaDeOrdemNaoVoltaParaVersaoAntiga() {
+        indice.indexar(produto(1, "Leite Integral", 2));
+        indice.indexar(produto(1, "Leite Desnatado", 1));
+
+        assertThat(indice.sugerir("leite", 10)).extracting(Sugestao::getNome).containsExactly("Leite Integral");
+        assertThat(indice.sugerir("desn", 10)).isEmpty();
+        assertThat(indice.inconsistencias()).isEmpty();
+    }
+
+    // Consultas de vários termos passam por blocos da menor lista, cruzamento com as listas do prefixo ou
+    // conferência um a um conforme os tamanhos; todas devem dar o mesmo que filtrar os produtos na força bruta
+    @Test
+    void consultaComVariosTermosIgualAFiltrarTodosOsProdutos() {
+        String[] palavras = {"arroz", "feijao", "integral", "tipo", "camil", "cafe", "extra", "economico"};
+        Random random = new Random(7);
+        Map<Integer, List<String>> termos = new TreeMap<>();
+        for (int id = 1; id <= 20_000; id++) {
+            List<String> nome = new ArrayList<>();
+            for (String palavra : palavras)
+                if (random.nextInt(4) == 0)
+                    nome.add(palavra);
+            nome.add(Integer.toString(id, 36)); // termo único, como um código
+            termos.put(id, nome);
+            indice.indexar(produto(id, String.join(" ", nome), 0));
+        }
+
+        for (int consulta = 0; consulta < 500; consulta++) {
+            List<String> completos = new ArrayList<>();
+            for (int i = 0; i <= random.nextInt(3); i++)
+                completos.add(palavras[random.nextInt(palavras.length)]);
+            String ultimo = random.nextBoolean() ? palavras[random.nextInt(palavras.length)] : Integer.toString(random.nextInt(20_000), 36);
+            String prefixo = ultimo.substring(0, 1 + random.nextInt(ultimo.length()));
+
+            List<Integer> esperados = termos.entrySet().stream()
+                    .filter(produto -> produto.getValue().containsAll(completos))
+                    .filter(produto -> produto.getValue().stream().anyMatch(termo -> termo.startsWith(prefixo)))
+                    .map(Map.Entry::getKey)
+                    .limit(10)
+                    .toList();
+            String texto = String.join(" ", completos) + " " + prefixo;
+            assertThat(indice.sugerir(texto, 10)).as(texto).extracting(Sugestao::getId).containsExactlyElementsOf(esperados);
+        }
+    }
+
+    // Simula o que o gerenciador de transações faz com as sincronizações no commit ou no rollback
+    private static void emTransacao(Runnable corpo, boolean commit) {
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            corpo.run();
+            List<TransactionSynchronization> sincronizacoes = TransactionSynchronizationManager.getSynchronizations();
+            if (commit)
+                TransactionSynchronizationUtils.invokeAfterCommit(sincronizacoes);
+            TransactionSynchronizationUtils.invokeAfterCompletion(sincronizacoes,
+                    commit ? TransactionSynchronization.STATUS_COMMITTED : TransactionSynchronization.STATUS_ROLLED_BACK);
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    private static void executar(List<Callable<Void>> tarefas) throws Exception {
+        try (ExecutorService threads = Executors.newFixedThreadPool(8)) {
+            for (Future<Void> resultado : threads.invokeAll(tarefas))
+                resultado.get();
+        }
+    }
+
+    private static Produto produto(int id, String nome, long versao) {
+        Produto produto = new Produto();
+        produto.setId(id);
+        produto.setNome(nome);
+        produto.setTipo("Mercearia");
+        produto.setSetor(Setor.ALIMENTOS);
+        produto.setTamanho("1kg");
+        produto.setPreco(BigDecimal.TEN);
+        produto.setVersao(versao);
+        return produto;
+    }
+}